@@ -0,0 +1,108 @@
+package com.codeapi.customer;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+
+import javax.sql.rowset.CachedRowSet;
+import javax.sql.rowset.RowSetMetaDataImpl;
+import javax.sql.rowset.RowSetProvider;
+import java.io.OutputStream;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// the export's and the listing page's former per-row path (row mapper + bean serializer) against the writer; the
+// profile's gc profiler reports the allocation per 1000 rows
+@State (Scope.Thread)
+@BenchmarkMode (Mode.AverageTime)
+@OutputTimeUnit (TimeUnit.MICROSECONDS)
+@Warmup (iterations = 3, time = 1)
+@Measurement (iterations = 5, time = 1)
+public class CustomerExportBenchmark {
+
+    @Param ({"1000"})
+    private int rows;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final CustomerRowMapper rowMapper = new CustomerRowMapper();
+    private CachedRowSet resultSet;
+
+    @Setup
+    public void setUp() throws SQLException {
+        RowSetMetaDataImpl metaData = new RowSetMetaDataImpl();
+        metaData.setColumnCount(5);
+        metaData.setColumnName(1, "id");
+        metaData.setColumnType(1, Types.BIGINT);
+        metaData.setColumnName(2, "name");
+        metaData.setColumnType(2, Types.VARCHAR);
+        metaData.setColumnName(3, "email");
+        metaData.setColumnType(3, Types.VARCHAR);
+        metaData.setColumnName(4, "age");
+        metaData.setColumnType(4, Types.INTEGER);
+        metaData.setColumnName(5, "version");
+        metaData.setColumnType(5, Types.BIGINT);
+
+        resultSet = RowSetProvider.newFactory().createCachedRowSet();
+        resultSet.setMetaData(metaData);
+        for (int i = 1; i <= rows; i++) {
+            resultSet.moveToInsertRow();
+            resultSet.updateLong(1, i);
+            resultSet.updateString(2, "Customer " + i);
+            resultSet.updateString(3, "customer" + i + "@test.com");
+            resultSet.updateInt(4, i % 80 + 10);
+            resultSet.updateLong(5, 0L);
+            resultSet.insertRow();
+        }
+        resultSet.moveToCurrentRow();
+    }
+
+    @Benchmark
+    public void mapAndSerialize() throws Exception {
+        resultSet.beforeFirst();
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(OutputStream.nullOutputStream())) {
+            generator.setRootValueSeparator(null);
+            int rowNum = 0;
+            while (resultSet.next()) {
+                generator.writeObject(rowMapper.mapRow(resultSet, rowNum++));
+                generator.writeRaw('\n');
+            }
+        }
+    }
+
+    @Benchmark
+    public void writeRows() throws Exception {
+        resultSet.beforeFirst();
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(OutputStream.nullOutputStream())) {
+            CustomerJsonWriter writer = new CustomerJsonWriter(generator);
+            while (resultSet.next()) {
+                writer.writeRow(resultSet);
+            }
+        }
+    }
+
+    @Benchmark
+    public void mapAndSerializePage() throws Exception {
+        resultSet.beforeFirst();
+        List<Customer> customers = new ArrayList<>(rows);
+        int rowNum = 0;
+        while (resultSet.next()) {
+            customers.add(rowMapper.mapRow(resultSet, rowNum++));
+        }
+        objectMapper.writeValue(OutputStream.nullOutputStream(), new CustomerPage(customers, String.valueOf(rows)));
+    }
+
+    @Benchmark
+    public void writePage() throws Exception {
+        resultSet.beforeFirst();
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(OutputStream.nullOutputStream())) {
+            CustomerJsonWriter writer = CustomerJsonWriter.page(generator);
+            while (resultSet.next()) {
+                writer.writeRow(resultSet);
+            }
+            writer.endPage(String.valueOf(rows));
+        }
+    }
+}
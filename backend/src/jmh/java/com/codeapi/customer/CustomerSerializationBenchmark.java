@@ -0,0 +1,38 @@
+package com.codeapi.customer;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State (Scope.Benchmark)
+@BenchmarkMode (Mode.AverageTime)
+@OutputTimeUnit (TimeUnit.MICROSECONDS)
+@Warmup (iterations = 3, time = 1)
+@Measurement (iterations = 5, time = 1)
+public class CustomerSerializationBenchmark {
+
+    @Param ({"1000", "100000"})
+    private int size;
+
+    private ObjectWriter writer;
+    private List<Customer> customers;
+
+    @Setup
+    public void setUp() {
+        writer = new ObjectMapper().writerFor(new TypeReference<List<Customer>>() {});
+        customers = new ArrayList<>(size);
+        for (long i = 1; i <= size; i++) {
+            customers.add(new Customer(i, "Customer " + i, "customer" + i + "@test.com", (int) (i % 80) + 10));
+        }
+    }
+
+    @Benchmark
+    public byte[] serializeList() throws Exception {
+        return writer.writeValueAsBytes(customers);
+    }
+}
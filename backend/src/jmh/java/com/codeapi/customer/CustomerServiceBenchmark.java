@@ -0,0 +1,48 @@
+package com.codeapi.customer;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.cache.support.NoOpCacheManager;
+
+import java.util.concurrent.TimeUnit;
+
+@State (Scope.Thread)
+@BenchmarkMode (Mode.AverageTime)
+@OutputTimeUnit (TimeUnit.NANOSECONDS)
+@Warmup (iterations = 3, time = 1)
+@Measurement (iterations = 5, time = 1)
+public class CustomerServiceBenchmark {
+
+    private StubCustomerDao customerDao;
+    private CustomerService customerService;
+    private long counter;
+
+    @Setup
+    public void setUp() {
+        customerDao = new StubCustomerDao();
+        customerDao.insertCustomer(new Customer("TEST", "test@test.com", 30));
+    }
+
+    // every insert adds its email to the filter and deletes never take one out, so a filter kept for the whole run
+    // would fill up and send more and more inserts to the existence check; each iteration starts from a fresh one
+    @Setup (Level.Iteration)
+    public void setUpEmailFilter() {
+        EmailBloomFilter emailFilter = new EmailBloomFilter(customerDao);
+        emailFilter.rebuild();
+        customerService = new CustomerService(customerDao, new NoOpCacheManager(), emailFilter, null, null);
+    }
+
+    @Benchmark
+    public void insertCustomer() {
+        long n = counter++;
+        customerService.insertCustomer(new CustomerDto("TEST", "test" + n + "@test.com", 30));
+        // keep the stub at a constant size so the measurement does not drift with map growth
+        customerDao.deleteCustomer(customerDao.lastId());
+    }
+
+    // the age changes on every call, so this measures an update that writes (see StubCustomerDao#updateCustomer)
+    @Benchmark
+    public void updateCustomer() {
+        int age = (int) (counter++ % 80) + 10;
+        customerService.updateCustomer(1L, new CustomerDto(null, null, age));
+    }
+}
@@ -0,0 +1,53 @@
+package com.codeapi.customer;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.util.StringUtils.*;
+
+@State (Scope.Thread)
+@BenchmarkMode (Mode.AverageTime)
+@OutputTimeUnit (TimeUnit.NANOSECONDS)
+@Warmup (iterations = 3, time = 1)
+@Measurement (iterations = 5, time = 1)
+public class CustomerUpdateSqlBenchmark {
+
+    private final Customer customer = new Customer(42L, "TEST", "test@test.com", 30);
+    private final CustomerUpdate update = new CustomerUpdate(42L, "TEST", null, 30);
+
+    @Benchmark
+    public void reflectiveUpdate(Blackhole blackhole) throws Exception {
+        // the former CustomerJDBCDataAccessService.updateCustomer statement builder
+        StringBuilder sqlBuilder = new StringBuilder("UPDATE customer SET ");
+        List<Object> params = new ArrayList<>();
+
+        Field[] fields = Customer.class.getDeclaredFields();
+        for (Field field : fields) {
+            String fieldName = field.getName();
+            if (!fieldName.equals("id")) {
+                sqlBuilder.append(fieldName).append(" = ?, ");
+                Method getter = Customer.class.getMethod("get" + capitalize(fieldName));
+                params.add(getter.invoke(customer));
+            }
+        }
+
+        sqlBuilder.setLength(sqlBuilder.length() - 2);
+        sqlBuilder.append(" WHERE id = ?");
+        params.add(Customer.class.getMethod("getId").invoke(customer));
+
+        blackhole.consume(sqlBuilder.toString());
+        blackhole.consume(params.toArray());
+    }
+
+    @Benchmark
+    public void precompiledUpdate(Blackhole blackhole) {
+        blackhole.consume(CustomerJDBCDataAccessService.updateSql(update));
+        blackhole.consume(CustomerJDBCDataAccessService.updateParams(update));
+    }
+}
@@ -0,0 +1,82 @@
+package com.codeapi.customer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.protobuf.ProtobufFactory;
+import com.fasterxml.jackson.dataformat.protobuf.schema.ProtobufSchema;
+import com.fasterxml.jackson.dataformat.protobuf.schema.ProtobufSchemaLoader;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// a full listing page in each negotiable format; encode also reports the payload size as the "bytes" counter
+@State (Scope.Benchmark)
+@BenchmarkMode (Mode.AverageTime)
+@OutputTimeUnit (TimeUnit.MICROSECONDS)
+@Warmup (iterations = 3, time = 1)
+@Measurement (iterations = 5, time = 1)
+public class CustomerWireFormatBenchmark {
+
+    @Param ({"json", "cbor", "smile", "protobuf"})
+    private String format;
+
+    @Param ({"500"})
+    private int size;
+
+    private ObjectWriter writer;
+    private ObjectReader reader;
+    private CustomerPage page;
+    private byte[] payload;
+
+    @Setup
+    public void setUp() throws Exception {
+        ObjectMapper mapper = switch (format) {
+            case "json" -> new ObjectMapper();
+            case "cbor" -> new ObjectMapper(new CBORFactory());
+            case "smile" -> new ObjectMapper(new SmileFactory());
+            case "protobuf" -> new ObjectMapper(new ProtobufFactory());
+            default -> throw new IllegalArgumentException(format);
+        };
+        writer = mapper.writerFor(CustomerPage.class);
+        reader = mapper.readerFor(CustomerPage.class);
+        if (format.equals("protobuf")) {
+            try (InputStream proto = getClass().getResourceAsStream("/proto/customer.proto")) {
+                ProtobufSchema schema = ProtobufSchemaLoader.std.loadNative(proto, false).forType("CustomerPage");
+                writer = writer.with(schema);
+                reader = reader.with(schema);
+            }
+        }
+
+        List<Customer> customers = new ArrayList<>(size);
+        for (long i = 1; i <= size; i++) {
+            customers.add(new Customer(i, "Customer " + i, "customer" + i + "@test.com", (int) (i % 80) + 10, 0L));
+        }
+        page = new CustomerPage(customers, String.valueOf(size));
+        payload = writer.writeValueAsBytes(page);
+    }
+
+    @State (Scope.Thread)
+    @AuxCounters (AuxCounters.Type.EVENTS)
+    public static class PayloadSize {
+        // assigned, not summed, so it reads as the size of one page
+        public long bytes;
+    }
+
+    @Benchmark
+    public byte[] encode(PayloadSize payloadSize) throws Exception {
+        byte[] encoded = writer.writeValueAsBytes(page);
+        payloadSize.bytes = encoded.length;
+        return encoded;
+    }
+
+    @Benchmark
+    public CustomerPage decode() throws Exception {
+        return reader.readValue(payload);
+    }
+}
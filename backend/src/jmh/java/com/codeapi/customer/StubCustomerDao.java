@@ -0,0 +1,156 @@
+package com.codeapi.customer;
+
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+class StubCustomerDao implements CustomerDao {
+
+    private final Map<Long, Customer> customers = new ConcurrentHashMap<>();
+    private final Map<String, Long> emails = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+
+    long lastId() {
+        return sequence.get();
+    }
+
+    @Override
+    public List<Customer> selectAllCustomers() {
+        return new ArrayList<>(customers.values());
+    }
+
+    @Override
+    public CustomerPage selectCustomersPage(Long after, int limit) {
+        List<Customer> page = customers.values().stream()
+                                       .filter(c -> after == null || c.getId() > after)
+                                       .sorted((a, b) -> Long.compare(a.getId(), b.getId()))
+                                       .limit(limit)
+                                       .toList();
+        return new CustomerPage(page, null);
+    }
+
+    @Override
+    public CustomerPage selectCustomersPage(CustomerFilter filter, CustomerSort sort, CustomerCursor after, int limit) {
+        return selectCustomersPage(after == null ? null : after.id(), limit);
+    }
+
+    @Override
+    public CustomerSearchPage searchCustomers(String query, int offset, int limit) {
+        List<Customer> matches = customers.values().stream()
+                                          .filter(c -> c.getName().contains(query) || c.getEmail().contains(query))
+                                          .skip(offset)
+                                          .limit(limit)
+                                          .toList();
+        return new CustomerSearchPage(matches, null);
+    }
+
+    @Override
+    public void streamAllCustomers(Consumer<Customer> consumer) {
+        customers.values().forEach(consumer);
+    }
+
+    @Override
+    public void writeAllCustomers(CustomerJsonWriter writer) {
+        customers.values().forEach(writer::write);
+    }
+
+    @Override
+    public Optional<Customer> selectCustomerById(Long id) {
+        Customer customer = customers.get(id);
+        return customer == null
+                ? Optional.empty()
+                : Optional.of(new Customer(customer.getId(), customer.getName(), customer.getEmail(), customer.getAge()));
+    }
+
+    @Override
+    public List<Customer> selectCustomersByIds(Collection<Long> ids) {
+        return ids.stream().map(this::selectCustomerById).flatMap(Optional::stream).toList();
+    }
+
+    @Override
+    public void insertCustomer(Customer customer) {
+        long id = sequence.incrementAndGet();
+        customers.put(id, new Customer(id, customer.getName(), customer.getEmail(), customer.getAge()));
+        emails.put(customer.getEmail(), id);
+    }
+
+    @Override
+    public void insertCustomers(List<Customer> customers) {
+        customers.forEach(this::insertCustomer);
+    }
+
+    @Override
+    public CustomerImportResult importCustomers(Reader reader, CustomerImportFormat format) {
+        List<CustomerImportReader.Row> rows = CustomerImportReader.read(reader, format);
+        long inserted = 0;
+        long updated = 0;
+        for (CustomerImportReader.Row row : rows) {
+            if (CustomerConstraints.violation(row.name(), row.email(), row.age(), true) != null) continue;
+            Long id = emails.get(row.email());
+            if (id == null) {
+                insertCustomer(new Customer(row.name(), row.email(), row.age()));
+                inserted++;
+            } else {
+                updated += updateCustomer(new CustomerUpdate(id, row.name(), null, row.age()));
+            }
+        }
+        return new CustomerImportResult(rows.size(), inserted, updated, rows.size() - inserted - updated);
+    }
+
+    @Override
+    public Set<String> selectExistingEmails(Collection<String> emails) {
+        return emails.stream().filter(this.emails::containsKey).collect(Collectors.toSet());
+    }
+
+    @Override
+    public boolean existPersonWithEmail(String email) {
+        return emails.containsKey(email);
+    }
+
+    @Override
+    public boolean deleteCustomer(Long id) {
+        Customer removed = customers.remove(id);
+        if (removed == null) return false;
+        emails.remove(removed.getEmail());
+        return true;
+    }
+
+    @Override
+    public boolean existsCustomerById(Long id) {
+        return customers.containsKey(id);
+    }
+
+    // like the JDBC engine, 0 for a missing row or one the update would not change; versions are not kept, so an
+    // expected version is never checked
+    @Override
+    public int updateCustomer(CustomerUpdate update) {
+        Customer customer = customers.get(update.id());
+        if (customer == null) return 0;
+        if ((update.name() == null || update.name().equals(customer.getName()))
+                && (update.email() == null || update.email().equals(customer.getEmail()))
+                && (update.age() == null || update.age().equals(customer.getAge()))) {
+            return 0;
+        }
+        if (update.name() != null) customer.setName(update.name());
+        if (update.email() != null) {
+            emails.remove(customer.getEmail());
+            emails.put(update.email(), customer.getId());
+            customer.setEmail(update.email());
+        }
+        if (update.age() != null) customer.setAge(update.age());
+        return 1;
+    }
+
+    @Override
+    public int[] updateCustomers(List<CustomerUpdate> updates) {
+        return updates.stream().mapToInt(this::updateCustomer).toArray();
+    }
+}
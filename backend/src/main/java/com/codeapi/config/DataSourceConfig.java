@@ -0,0 +1,71 @@
+package com.codeapi.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.jdbc.JdbcProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Configuration
+@EnableConfigurationProperties(DataSourceProperties.class)
+public class DataSourceConfig {
+
+    // DataSourceAutoConfiguration backs off as soon as an R2DBC ConnectionFactory exists, but JDBC stays the primary stack
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    // DAO methods marked @ReadReplica read from customer.replicas.urls when set; writes, Flyway and JPA use the primary
+    @Bean
+    @Primary
+    public ReplicaRoutingDataSource dataSource(HikariDataSource primaryDataSource,
+                                               @Value("${customer.replicas.urls:}") List<String> replicaUrls,
+                                               @Value("${customer.replicas.max-lag:5s}") Duration maxLag,
+                                               @Value("${customer.replicas.probe-interval:1s}") Duration probeInterval,
+                                               MeterRegistry meterRegistry) {
+        List<DataSource> replicas = new ArrayList<>(replicaUrls.size());
+        for (int i = 0; i < replicaUrls.size(); i++) {
+            replicas.add(ReplicaRoutingDataSource.replicaPool(primaryDataSource, replicaUrls.get(i),
+                                                              primaryDataSource.getPoolName() + "-replica-" + i, meterRegistry));
+        }
+        ReplicaRoutingDataSource dataSource = new ReplicaRoutingDataSource(primaryDataSource, replicas, maxLag);
+        dataSource.startProbing(probeInterval, meterRegistry);
+        return dataSource;
+    }
+
+    // replaces Boot's JdbcTemplate so every statement the DAO issues is reported to SqlStatistics
+    @Bean
+    public JdbcTemplate jdbcTemplate(DataSource dataSource, JdbcProperties properties, SqlStatistics sqlStatistics) {
+        JdbcTemplate jdbcTemplate = new SqlStatisticsJdbcTemplate(dataSource, sqlStatistics);
+        JdbcProperties.Template template = properties.getTemplate();
+        jdbcTemplate.setFetchSize(template.getFetchSize());
+        jdbcTemplate.setMaxRows(template.getMaxRows());
+        if (template.getQueryTimeout() != null) {
+            jdbcTemplate.setQueryTimeout((int) template.getQueryTimeout().getSeconds());
+        }
+        return jdbcTemplate;
+    }
+
+    // the R2DBC transaction manager is registered next to this one; plain @Transactional keeps meaning JDBC
+    @Bean
+    @Primary
+    public PlatformTransactionManager transactionManager(EntityManagerFactory entityManagerFactory) {
+        return new JpaTransactionManager(entityManagerFactory);
+    }
+}
@@ -0,0 +1,60 @@
+package com.codeapi.config;
+
+import com.codeapi.exception.DuplicateResourceException;
+import com.codeapi.exception.NotModifiedException;
+import com.codeapi.exception.PreconditionFailedException;
+import com.codeapi.exception.RequestValidationException;
+import com.codeapi.exception.ResourceNotFoundException;
+import com.codeapi.exception.ServiceUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+import org.springframework.web.servlet.ModelAndView;
+
+import java.util.List;
+
+/**
+ * Counts every exception that reaches the MVC dispatcher, tagged by type, then lets the regular
+ * resolvers turn it into a response.
+ */
+@Component
+@ConditionalOnWebApplication (type = ConditionalOnWebApplication.Type.SERVLET)
+public class ExceptionMetricsResolver implements HandlerExceptionResolver, Ordered {
+
+    private static final String METRIC = "customer.exceptions";
+
+    private final MeterRegistry meterRegistry;
+
+    public ExceptionMetricsResolver(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        // registered up front so dashboards see a zero rather than a missing series
+        List.of(ResourceNotFoundException.class, DuplicateResourceException.class,
+                NotModifiedException.class, PreconditionFailedException.class, RequestValidationException.class,
+                ServiceUnavailableException.class)
+            .forEach(type -> counter(type.getSimpleName()));
+    }
+
+    @Override
+    public ModelAndView resolveException(HttpServletRequest request, HttpServletResponse response,
+                                         Object handler, Exception ex) {
+        counter(ex.getClass().getSimpleName()).increment();
+        return null;
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+
+    private Counter counter(String exception) {
+        return Counter.builder(METRIC)
+                      .description("Exceptions raised while handling customer API requests")
+                      .tag("exception", exception)
+                      .register(meterRegistry);
+    }
+}
@@ -0,0 +1,52 @@
+package com.codeapi.config;
+
+import com.zaxxer.hikari.HikariConfigMXBean;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * Current size and load of the JDBC connection pool. Resizing it is left to {@link PoolEndpointJmxExtension}, so
+ * that it is never reachable over HTTP.
+ */
+@Component
+@Endpoint (id = "pool")
+public class PoolEndpoint {
+
+    private final HikariDataSource dataSource;
+
+    public PoolEndpoint(HikariDataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    @ReadOperation
+    public PoolStatus status() {
+        HikariConfigMXBean config = dataSource.getHikariConfigMXBean();
+        HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+        return new PoolStatus(
+                config.getPoolName(),
+                config.getMaximumPoolSize(),
+                config.getMinimumIdle(),
+                config.getConnectionTimeout(),
+                config.getLeakDetectionThreshold(),
+                pool == null ? 0 : pool.getActiveConnections(),
+                pool == null ? 0 : pool.getIdleConnections(),
+                pool == null ? 0 : pool.getThreadsAwaitingConnection(),
+                pool == null ? 0 : pool.getTotalConnections()
+        );
+    }
+
+    public record PoolStatus(
+            String pool,
+            int maximumPoolSize,
+            int minimumIdle,
+            long connectionTimeoutMs,
+            long leakDetectionThresholdMs,
+            int active,
+            int idle,
+            int pending,
+            int total
+    ) {}
+}
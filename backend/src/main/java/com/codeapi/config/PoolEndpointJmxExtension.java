@@ -0,0 +1,48 @@
+package com.codeapi.config;
+
+import com.zaxxer.hikari.HikariConfigMXBean;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.actuate.endpoint.jmx.annotation.EndpointJmxExtension;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+/**
+ * Adds a resize operation to the pool endpoint over JMX only. A smaller maximum takes effect as busy connections are
+ * returned; a larger minimum idle is filled in the background. JMX is off unless spring.jmx.enabled is set and the
+ * endpoint is listed in management.endpoints.jmx.exposure.include.
+ */
+@Component
+@EndpointJmxExtension (endpoint = PoolEndpoint.class)
+public class PoolEndpointJmxExtension {
+
+    private final HikariDataSource dataSource;
+    private final PoolEndpoint delegate;
+
+    public PoolEndpointJmxExtension(HikariDataSource dataSource, PoolEndpoint delegate) {
+        this.dataSource = dataSource;
+        this.delegate = delegate;
+    }
+
+    @WriteOperation
+    public PoolEndpoint.PoolStatus resize(@Nullable Integer maximumPoolSize, @Nullable Integer minimumIdle) {
+        HikariConfigMXBean config = dataSource.getHikariConfigMXBean();
+        int maximum = maximumPoolSize == null ? config.getMaximumPoolSize() : maximumPoolSize;
+        int minimum = minimumIdle == null ? Math.min(config.getMinimumIdle(), maximum) : minimumIdle;
+        if (maximum < 1 || minimum < 0 || minimum > maximum) {
+            throw new InvalidEndpointRequestException(
+                    "Pool size must satisfy 0 <= minimumIdle <= maximumPoolSize and maximumPoolSize >= 1",
+                    "Invalid pool size");
+        }
+        // keep minimumIdle <= maximumPoolSize at every step
+        if (maximum >= config.getMaximumPoolSize()) {
+            config.setMaximumPoolSize(maximum);
+            config.setMinimumIdle(minimum);
+        } else {
+            config.setMinimumIdle(minimum);
+            config.setMaximumPoolSize(maximum);
+        }
+        return delegate.status();
+    }
+}
@@ -0,0 +1,66 @@
+package com.codeapi.config;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.protobuf.schema.NativeProtobufSchema;
+import com.fasterxml.jackson.dataformat.protobuf.schema.ProtobufSchema;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.AbstractJackson2HttpMessageConverter;
+import org.springframework.lang.Nullable;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reads and writes {@code application/x-protobuf} through Jackson's protobuf backend. A Java type is supported when
+ * the .proto file declares a message of the same simple name, so field numbers come from that file rather than
+ * from property order; every other type (lists, error bodies) is left to the remaining converters.
+ */
+public class ProtobufHttpMessageConverter extends AbstractJackson2HttpMessageConverter {
+
+    public static final MediaType APPLICATION_PROTOBUF = new MediaType("application", "x-protobuf");
+
+    private final NativeProtobufSchema schema;
+    private final Map<Class<?>, ProtobufSchema> schemas = new ConcurrentHashMap<>();
+
+    public ProtobufHttpMessageConverter(ObjectMapper objectMapper, NativeProtobufSchema schema) {
+        super(objectMapper, APPLICATION_PROTOBUF);
+        this.schema = schema;
+    }
+
+    @Override
+    public boolean canRead(Type type, @Nullable Class<?> contextClass, @Nullable MediaType mediaType) {
+        return type instanceof Class<?> clazz && schema.hasMessageType(clazz.getSimpleName())
+                && super.canRead(type, contextClass, mediaType);
+    }
+
+    @Override
+    public boolean canWrite(Class<?> clazz, @Nullable MediaType mediaType) {
+        return schema.hasMessageType(clazz.getSimpleName()) && super.canWrite(clazz, mediaType);
+    }
+
+    @Override
+    protected ObjectReader customizeReader(ObjectReader reader, JavaType javaType) {
+        return reader.with(schemaFor(javaType.getRawClass()));
+    }
+
+    // the declared type can be missing or wider than the value, while the message has to match the value exactly
+    @Override
+    protected void writeInternal(Object object, @Nullable Type type, HttpOutputMessage outputMessage) throws IOException {
+        super.writeInternal(object, object.getClass(), outputMessage);
+    }
+
+    @Override
+    protected ObjectWriter customizeWriter(ObjectWriter writer, JavaType javaType, @Nullable MediaType contentType) {
+        return writer.with(schemaFor(javaType.getRawClass()));
+    }
+
+    private ProtobufSchema schemaFor(Class<?> clazz) {
+        return schemas.computeIfAbsent(clazz, type -> schema.forType(type.getSimpleName()));
+    }
+}
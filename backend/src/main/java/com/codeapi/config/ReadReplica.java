@@ -0,0 +1,17 @@
+package com.codeapi.config;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a DAO method whose queries may be served by a read replica, i.e. one that tolerates reading data that is
+ * up to {@code customer.replicas.max-lag} old. Routing is done by {@link ReplicaRoutingDataSource}.
+ */
+@Documented
+@Target (ElementType.METHOD)
+@Retention (RetentionPolicy.RUNTIME)
+public @interface ReadReplica {
+}
@@ -0,0 +1,16 @@
+package com.codeapi.config;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+@Aspect
+@Component
+public class ReadReplicaAspect {
+
+    @Around ("@annotation(com.codeapi.config.ReadReplica)")
+    public Object routeToReplica(ProceedingJoinPoint joinPoint) throws Throwable {
+        return ReplicaRoutingDataSource.onReplica(joinPoint::proceed);
+    }
+}
@@ -0,0 +1,210 @@
+package com.codeapi.config;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends connections requested inside {@link #onReplica} (see {@link ReadReplica}) to a read replica and everything
+ * else to the primary. A replica is only used while its last lag probe succeeded and reported a replay lag within
+ * the configured maximum; with no usable replica, or when a replica refuses a connection, reads fall back to the
+ * primary. Replicas are probed on a background thread and share the primary's pool settings.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+    private static final String PRIMARY = "primary";
+
+    private static final ThreadLocal<Boolean> READ = new ThreadLocal<>();
+    private static final ThreadLocal<Boolean> PRIMARY_ONLY = new ThreadLocal<>();
+
+    // the WAL received so far has been replayed: an idle primary must not look like a lagging replica
+    private static final String LAG_SQL = """
+            SELECT CASE
+                       WHEN NOT pg_is_in_recovery() THEN 0
+                       WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0
+                       ELSE EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp())
+                   END
+            """;
+
+    private final DataSource primary;
+    private final List<Replica> replicas;
+    private final Duration maxLag;
+    private final AtomicInteger next = new AtomicInteger();
+    private ScheduledExecutorService prober;
+
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas, Duration maxLag) {
+        this.primary = primary;
+        this.maxLag = maxLag;
+        this.replicas = new ArrayList<>(replicas.size());
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = new Replica("replica-" + i, replicas.get(i));
+            this.replicas.add(replica);
+            targets.put(replica.name, replica.dataSource);
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+    }
+
+    // replicas start from the primary's pool settings (sizes, timeouts, statement cache); only URL and name differ
+    public static HikariDataSource replicaPool(HikariDataSource primary, String jdbcUrl, String poolName,
+                                               MeterRegistry meterRegistry) {
+        HikariConfig config = new HikariConfig();
+        primary.copyStateTo(config);
+        config.setJdbcUrl(jdbcUrl);
+        config.setPoolName(poolName);
+        config.setReadOnly(true);
+        // not a bean, so Boot's pool metrics binder never sees it
+        config.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+        return new HikariDataSource(config);
+    }
+
+    public static <T, E extends Throwable> T onReplica(Read<T, E> read) throws E {
+        // a transaction may already hold a primary connection, and must see its own writes anyway
+        if (READ.get() != null || Boolean.TRUE.equals(PRIMARY_ONLY.get())
+                || TransactionSynchronizationManager.isActualTransactionActive()) {
+            return read.call();
+        }
+        READ.set(Boolean.TRUE);
+        try {
+            return read.call();
+        } finally {
+            READ.remove();
+        }
+    }
+
+    public static <T, E extends Throwable> T onPrimary(Read<T, E> read) throws E {
+        Boolean previous = PRIMARY_ONLY.get();
+        PRIMARY_ONLY.set(Boolean.TRUE);
+        try {
+            return read.call();
+        } finally {
+            PRIMARY_ONLY.set(previous);
+        }
+    }
+
+    public void startProbing(Duration interval, MeterRegistry meterRegistry) {
+        if (replicas.isEmpty()) return;
+        for (Replica replica : replicas) {
+            Gauge.builder("customer.replica.lag", replica, r -> r.lagSeconds)
+                 .tag("replica", replica.name)
+                 .baseUnit("seconds")
+                 .description("Replay lag of a read replica; NaN while it is unreachable")
+                 .register(meterRegistry);
+        }
+        prober = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("replica-lag-probe").daemon().factory());
+        prober.scheduleWithFixedDelay(this::probe, 0, interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    void probe() {
+        for (Replica replica : replicas) {
+            try (Connection connection = replica.dataSource.getConnection();
+                 Statement statement = connection.createStatement();
+                 ResultSet rs = statement.executeQuery(LAG_SQL)) {
+                rs.next();
+                replica.lagSeconds = rs.getDouble(1);
+            } catch (SQLException | RuntimeException e) {
+                if (!Double.isNaN(replica.lagSeconds)) {
+                    log.warn("Read replica {} is unreachable, reads fall back to the primary", replica.name, e);
+                }
+                replica.lagSeconds = Double.NaN;
+            }
+        }
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        Replica replica = READ.get() == null ? null : pickReplica();
+        return replica == null ? PRIMARY : replica.name;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        Replica replica = READ.get() == null ? null : pickReplica();
+        if (replica == null) return primary.getConnection();
+        try {
+            return replica.dataSource.getConnection();
+        } catch (SQLException e) {
+            log.warn("Read replica {} refused a connection, reading from the primary", replica.name, e);
+            replica.lagSeconds = Double.NaN;
+            return primary.getConnection();
+        }
+    }
+
+    // round robin over the replicas that are currently within the lag bound
+    private Replica pickReplica() {
+        int size = replicas.size();
+        if (size == 0) return null;
+        int start = Math.floorMod(next.getAndIncrement(), size);
+        for (int i = 0; i < size; i++) {
+            Replica replica = replicas.get((start + i) % size);
+            if (replica.isUsable(maxLag)) return replica;
+        }
+        return null;
+    }
+
+    List<Replica> replicas() {
+        return replicas;
+    }
+
+    @Override
+    public void destroy() {
+        if (prober != null) prober.shutdownNow();
+        for (Replica replica : replicas) {
+            if (replica.dataSource instanceof AutoCloseable closeable) {
+                try {
+                    closeable.close();
+                } catch (Exception e) {
+                    log.warn("Closing read replica {} failed", replica.name, e);
+                }
+            }
+        }
+    }
+
+    @FunctionalInterface
+    public interface Read<T, E extends Throwable> {
+        T call() throws E;
+    }
+
+    static final class Replica {
+
+        final String name;
+        final DataSource dataSource;
+        // NaN until the first successful probe and while unreachable
+        volatile double lagSeconds = Double.NaN;
+
+        Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+
+        boolean isUsable(Duration maxLag) {
+            double lag = lagSeconds;
+            return !Double.isNaN(lag) && lag * 1000 <= maxLag.toMillis();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.codeapi.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-statement execution statistics fed by {@link SqlStatisticsJdbcTemplate}. Statements slower than the
+ * threshold are logged with their SQL text only; bind values never leave the driver.
+ */
+@Component
+public class SqlStatistics {
+
+    private static final Logger log = LoggerFactory.getLogger(SqlStatistics.class);
+    private static final String OTHER = "<other statements>";
+
+    private final ConcurrentHashMap<String, StatementStats> statements = new ConcurrentHashMap<>();
+
+    @Value("${customer.sql.slow-threshold:200ms}")
+    private Duration slowThreshold = Duration.ofMillis(200);
+
+    @Value("${customer.sql.max-statements:1000}")
+    private int maxStatements = 1000;
+
+    public void record(String sql, long executeNanos, long fetchNanos, long rows, int binds) {
+        long elapsedNanos = executeNanos + fetchNanos;
+        stats(sql).add(elapsedNanos, fetchNanos, rows);
+        if (elapsedNanos >= slowThreshold.toNanos()) {
+            log.warn("Slow SQL ({} ms, fetch {} ms, {} rows, {} binds redacted): {}",
+                    TimeUnit.NANOSECONDS.toMillis(elapsedNanos), TimeUnit.NANOSECONDS.toMillis(fetchNanos),
+                    rows, binds, normalize(sql));
+        }
+    }
+
+    public List<StatementSummary> top(int limit) {
+        return statements.values().stream()
+                         .map(StatementStats::summary)
+                         .sorted(Comparator.comparingDouble(StatementSummary::totalMillis).reversed())
+                         .limit(limit)
+                         .toList();
+    }
+
+    public void reset() {
+        statements.clear();
+    }
+
+    // keyed by the raw text so the hot path is a plain lookup; anything past the cap is folded into one bucket
+    private StatementStats stats(String sql) {
+        StatementStats stats = statements.get(sql);
+        if (stats != null) return stats;
+        String key = statements.size() < maxStatements ? sql : OTHER;
+        return statements.computeIfAbsent(key, k -> new StatementStats(normalize(k)));
+    }
+
+    private static String normalize(String sql) {
+        return sql.strip().replaceAll("\\s+", " ");
+    }
+
+    public record StatementSummary(String sql, long calls, long rows, double totalMillis,
+                                   double meanMillis, double maxMillis, double fetchMillis) {}
+
+    private static final class StatementStats {
+
+        private final String sql;
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAdder fetchNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+        private StatementStats(String sql) {
+            this.sql = sql;
+        }
+
+        private void add(long elapsedNanos, long fetchNanos, long rows) {
+            this.calls.increment();
+            this.rows.add(rows);
+            this.totalNanos.add(elapsedNanos);
+            this.fetchNanos.add(fetchNanos);
+            this.maxNanos.accumulate(elapsedNanos);
+        }
+
+        private StatementSummary summary() {
+            long calls = this.calls.sum();
+            long total = totalNanos.sum();
+            return new StatementSummary(sql, calls, rows.sum(), millis(total),
+                    calls == 0 ? 0 : millis(total / calls), millis(maxNanos.get()), millis(fetchNanos.sum()));
+        }
+
+        private static double millis(long nanos) {
+            return nanos / 1_000_000.0;
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.codeapi.config;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterDisposer;
+import org.springframework.jdbc.core.PreparedStatementCallback;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.SqlProvider;
+import org.springframework.jdbc.support.KeyHolder;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.stream.Stream;
+
+/**
+ * JdbcTemplate that reports every prepared statement to {@link SqlStatistics}: time spent executing, time spent
+ * pulling rows through {@code ResultSet.next()}, rows read or written and the number of bind parameters.
+ * Time the caller spends between rows (e.g. writing an export to the client) is not counted.
+ */
+public class SqlStatisticsJdbcTemplate extends JdbcTemplate {
+
+    private final SqlStatistics statistics;
+
+    public SqlStatisticsJdbcTemplate(DataSource dataSource, SqlStatistics statistics) {
+        super(dataSource);
+        this.statistics = statistics;
+    }
+
+    // JdbcTemplate funnels these through a private execute(), so each public entry point taking a creator is wrapped
+
+    @Override
+    public <T> T execute(PreparedStatementCreator psc, PreparedStatementCallback<T> action) throws DataAccessException {
+        return super.execute(instrument(psc), action);
+    }
+
+    @Override
+    public <T> T execute(String sql, PreparedStatementCallback<T> action) throws DataAccessException {
+        return super.execute(new InstrumentedCreator(con -> con.prepareStatement(sql), sql), action);
+    }
+
+    @Override
+    public <T> T query(PreparedStatementCreator psc, PreparedStatementSetter pss, ResultSetExtractor<T> rse)
+            throws DataAccessException {
+        return super.query(instrument(psc), pss, rse);
+    }
+
+    @Override
+    public <T> Stream<T> queryForStream(PreparedStatementCreator psc, PreparedStatementSetter pss, RowMapper<T> rowMapper)
+            throws DataAccessException {
+        return super.queryForStream(instrument(psc), pss, rowMapper);
+    }
+
+    @Override
+    protected int update(PreparedStatementCreator psc, PreparedStatementSetter pss) throws DataAccessException {
+        return super.update(instrument(psc), pss);
+    }
+
+    @Override
+    public int update(PreparedStatementCreator psc, KeyHolder generatedKeyHolder) throws DataAccessException {
+        return super.update(instrument(psc), generatedKeyHolder);
+    }
+
+    @Override
+    public <T> T execute(ConnectionCallback<T> action) throws DataAccessException {
+        return super.execute((ConnectionCallback<T>) connection -> action.doInConnection(instrument(connection)));
+    }
+
+    private PreparedStatementCreator instrument(PreparedStatementCreator psc) {
+        if (psc instanceof InstrumentedCreator) return psc;
+        return new InstrumentedCreator(psc, psc instanceof SqlProvider provider ? provider.getSql() : null);
+    }
+
+    private Connection instrument(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    Object result = invoke(connection, method, args);
+                    if (method.getName().equals("prepareStatement") && args[0] instanceof String sql) {
+                        return new Execution(sql).wrap((PreparedStatement) result);
+                    }
+                    return result;
+                });
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    private class InstrumentedCreator implements PreparedStatementCreator, SqlProvider, ParameterDisposer {
+
+        private final PreparedStatementCreator delegate;
+        private final String sql;
+
+        private InstrumentedCreator(PreparedStatementCreator delegate, String sql) {
+            this.delegate = delegate;
+            this.sql = sql;
+        }
+
+        @Override
+        public PreparedStatement createPreparedStatement(Connection con) throws SQLException {
+            PreparedStatement ps = delegate.createPreparedStatement(con);
+            return sql == null ? ps : new Execution(sql).wrap(ps);
+        }
+
+        @Override
+        public String getSql() {
+            return sql;
+        }
+
+        @Override
+        public void cleanupParameters() {
+            if (delegate instanceof ParameterDisposer disposer) disposer.cleanupParameters();
+        }
+    }
+
+    // one statement from prepare to close; a batch executed in several chunks counts as a single call
+    private class Execution {
+
+        private final String sql;
+        private long executeNanos;
+        private long fetchNanos;
+        private long rows;
+        private int binds;
+        private boolean closed;
+
+        private Execution(String sql) {
+            this.sql = sql;
+        }
+
+        private PreparedStatement wrap(PreparedStatement ps) {
+            return (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class}, statementHandler(ps));
+        }
+
+        private InvocationHandler statementHandler(PreparedStatement ps) {
+            return (proxy, method, args) -> {
+                String name = method.getName();
+                if (name.startsWith("set") && args != null && args.length > 1 && args[0] instanceof Integer index) {
+                    binds = Math.max(binds, index);
+                    return invoke(ps, method, args);
+                }
+                if (name.startsWith("execute")) {
+                    long start = System.nanoTime();
+                    try {
+                        Object result = invoke(ps, method, args);
+                        countRows(result);
+                        return result instanceof ResultSet rs ? wrap(rs) : result;
+                    } finally {
+                        executeNanos += System.nanoTime() - start;
+                    }
+                }
+                if (name.equals("getResultSet")) {
+                    Object result = invoke(ps, method, args);
+                    return result == null ? null : wrap((ResultSet) result);
+                }
+                if (name.equals("close")) {
+                    try {
+                        return invoke(ps, method, args);
+                    } finally {
+                        finish();
+                    }
+                }
+                return invoke(ps, method, args);
+            };
+        }
+
+        private ResultSet wrap(ResultSet rs) {
+            return (ResultSet) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{ResultSet.class},
+                    (proxy, method, args) -> {
+                        if (!method.getName().equals("next")) return invoke(rs, method, args);
+                        long start = System.nanoTime();
+                        try {
+                            boolean next = (boolean) invoke(rs, method, args);
+                            if (next) rows++;
+                            return next;
+                        } finally {
+                            fetchNanos += System.nanoTime() - start;
+                        }
+                    });
+        }
+
+        private void countRows(Object result) {
+            if (result instanceof Integer count && count > 0) rows += count;
+            else if (result instanceof Long count && count > 0) rows += count;
+            else if (result instanceof int[] counts) for (int count : counts) rows += batchRows(count);
+            else if (result instanceof long[] counts) for (long count : counts) rows += batchRows(count);
+        }
+
+        // reWriteBatchedInserts folds a batch into multi-row inserts and reports SUCCESS_NO_INFO per entry
+        private static long batchRows(long count) {
+            return count == Statement.SUCCESS_NO_INFO ? 1 : Math.max(count, 0);
+        }
+
+        private void finish() {
+            if (closed) return;
+            closed = true;
+            statistics.record(sql, executeNanos, fetchNanos, rows, binds);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.codeapi.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * The statements that took the most time so far. Resetting the statistics is left to
+ * {@link SqlStatsEndpointJmxExtension}, so that it is never reachable over HTTP.
+ */
+@Component
+@Endpoint (id = "sqlstats")
+public class SqlStatsEndpoint {
+
+    private final SqlStatistics sqlStatistics;
+
+    @Value("${customer.sql.top:20}")
+    private int defaultTop = 20;
+
+    public SqlStatsEndpoint(SqlStatistics sqlStatistics) {
+        this.sqlStatistics = sqlStatistics;
+    }
+
+    @ReadOperation
+    public List<SqlStatistics.StatementSummary> statements(@Nullable Integer top) {
+        return sqlStatistics.top(top == null ? defaultTop : top);
+    }
+}
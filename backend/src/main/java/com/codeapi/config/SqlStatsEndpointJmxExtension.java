@@ -0,0 +1,25 @@
+package com.codeapi.config;
+
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.jmx.annotation.EndpointJmxExtension;
+import org.springframework.stereotype.Component;
+
+/**
+ * Adds a reset operation to the sqlstats endpoint over JMX only, under the same conditions as
+ * {@link PoolEndpointJmxExtension}.
+ */
+@Component
+@EndpointJmxExtension (endpoint = SqlStatsEndpoint.class)
+public class SqlStatsEndpointJmxExtension {
+
+    private final SqlStatistics sqlStatistics;
+
+    public SqlStatsEndpointJmxExtension(SqlStatistics sqlStatistics) {
+        this.sqlStatistics = sqlStatistics;
+    }
+
+    @DeleteOperation
+    public void reset() {
+        sqlStatistics.reset();
+    }
+}
@@ -0,0 +1,64 @@
+package com.codeapi.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Streams JFR jdk.VirtualThreadPinned events while virtual threads are enabled, so carrier-thread
+ * pinning (synchronized blocks or native frames around blocking I/O) shows up as a metric and a log line.
+ */
+@Component
+@ConditionalOnProperty (name = "spring.threads.virtual.enabled", havingValue = "true")
+public class VirtualThreadPinningMonitor implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(VirtualThreadPinningMonitor.class);
+
+    private final Counter pinnedCounter;
+    private final RecordingStream recordingStream = new RecordingStream();
+
+    @Value("${customer.virtual-threads.pinned-threshold:20ms}")
+    private Duration pinnedThreshold = Duration.ofMillis(20);
+
+    public VirtualThreadPinningMonitor(MeterRegistry meterRegistry) {
+        this.pinnedCounter = Counter.builder("jvm.threads.virtual.pinned")
+                                    .description("Virtual threads pinned to their carrier longer than the threshold")
+                                    .register(meterRegistry);
+    }
+
+    @EventListener (ApplicationReadyEvent.class)
+    public void start() {
+        recordingStream.enable("jdk.VirtualThreadPinned").withThreshold(pinnedThreshold).withStackTrace();
+        recordingStream.onEvent("jdk.VirtualThreadPinned", this::onPinned);
+        recordingStream.startAsync();
+    }
+
+    private void onPinned(RecordedEvent event) {
+        pinnedCounter.increment();
+        String frame = event.getStackTrace() == null || event.getStackTrace().getFrames().isEmpty()
+                ? "unknown"
+                : describe(event.getStackTrace().getFrames().get(0));
+        log.warn("Virtual thread pinned for {} ms at {}", event.getDuration().toMillis(), frame);
+    }
+
+    private static String describe(RecordedFrame frame) {
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+    }
+
+    @Override
+    public void destroy() {
+        recordingStream.close();
+    }
+}
@@ -21,6 +21,10 @@ public class Customer {
     @Column(nullable = false)
     private Integer age;
 
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
 
     public Customer() {}
 
@@ -37,6 +41,11 @@ public class Customer {
         this.age = age;
     }
 
+    public Customer(Long id, String name, String email, Integer age, Long version) {
+        this(id, name, email, age);
+        this.version = version;
+    }
+
 
     public Long getId() {
         return id;
@@ -70,6 +79,14 @@ public class Customer {
         this.age = age;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -90,6 +107,7 @@ public class Customer {
                 ", name='" + name + '\'' +
                 ", email='" + email + '\'' +
                 ", age=" + age +
+                ", version=" + version +
                 '}';
     }
 }
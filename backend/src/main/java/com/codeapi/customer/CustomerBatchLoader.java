@@ -0,0 +1,135 @@
+package com.codeapi.customer;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Batches by-id lookups across concurrent requests. The first lookup of a batch opens a window; lookups arriving
+ * within it, or until the batch holds max-size distinct ids, are answered by one {@code WHERE id = ANY(?)} query.
+ * Callers block until their batch returns, trading at most one window of latency for fewer round trips.
+ */
+@Component
+@ConditionalOnProperty (name = "customer.batch-loader.enabled", havingValue = "true")
+public class CustomerBatchLoader implements InitializingBean, DisposableBean {
+
+    private final CustomerDao customerDao;
+    private final MeterRegistry meterRegistry;
+    private final ReentrantLock lock = new ReentrantLock();
+    private Map<Long, CompletableFuture<Optional<Customer>>> batch = new HashMap<>();
+    private DistributionSummary batchSizes;
+    private ScheduledExecutorService timer;
+    private ExecutorService dispatcher;
+
+    @Value("${customer.batch-loader.window:2ms}")
+    private Duration window = Duration.ofMillis(2);
+
+    @Value("${customer.batch-loader.max-size:100}")
+    private int maxSize = 100;
+
+    public CustomerBatchLoader(CustomerDao customerDao, MeterRegistry meterRegistry) {
+        this.customerDao = customerDao;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        batchSizes = DistributionSummary.builder("customer.lookups.batch.size")
+                                        .description("Distinct customer ids answered per batched lookup query")
+                                        .publishPercentileHistogram()
+                                        .minimumExpectedValue(1.0)
+                                        .maximumExpectedValue((double) maxSize)
+                                        .register(meterRegistry);
+        timer = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("customer-batch-loader").daemon().factory());
+        // queries run off the timer thread so a slow batch never delays the next window
+        dispatcher = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("customer-batch-", 0).factory());
+    }
+
+    public Optional<Customer> load(Long id) {
+        CompletableFuture<Optional<Customer>> result;
+        Map<Long, CompletableFuture<Optional<Customer>>> full = null;
+        lock.lock();
+        try {
+            Map<Long, CompletableFuture<Optional<Customer>>> open = batch;
+            result = open.computeIfAbsent(id, key -> new CompletableFuture<>());
+            if (open.size() >= maxSize) {
+                full = take();
+            } else if (open.size() == 1) {
+                timer.schedule(() -> dispatchIfOpen(open), window.toNanos(), TimeUnit.NANOSECONDS);
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (full != null) dispatch(full);
+
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw e;
+        }
+    }
+
+    // the window of a batch that was already sent because it filled up has nothing left to do
+    private void dispatchIfOpen(Map<Long, CompletableFuture<Optional<Customer>>> scheduled) {
+        Map<Long, CompletableFuture<Optional<Customer>>> taken = null;
+        lock.lock();
+        try {
+            if (batch == scheduled) taken = take();
+        } finally {
+            lock.unlock();
+        }
+        if (taken != null) dispatch(taken);
+    }
+
+    private Map<Long, CompletableFuture<Optional<Customer>>> take() {
+        Map<Long, CompletableFuture<Optional<Customer>>> taken = batch;
+        batch = new HashMap<>();
+        return taken;
+    }
+
+    private void dispatch(Map<Long, CompletableFuture<Optional<Customer>>> taken) {
+        dispatcher.execute(() -> {
+            batchSizes.record(taken.size());
+            try {
+                Map<Long, Customer> found = new HashMap<>();
+                for (Customer customer : customerDao.selectCustomersByIds(taken.keySet())) {
+                    found.put(customer.getId(), customer);
+                }
+                taken.forEach((id, future) -> future.complete(Optional.ofNullable(found.get(id))));
+            } catch (RuntimeException | Error e) {
+                taken.values().forEach(future -> future.completeExceptionally(e));
+            }
+        });
+    }
+
+    @Override
+    public void destroy() {
+        timer.shutdownNow();
+        Map<Long, CompletableFuture<Optional<Customer>>> taken;
+        lock.lock();
+        try {
+            taken = take();
+        } finally {
+            lock.unlock();
+        }
+        if (!taken.isEmpty()) dispatch(taken);
+        dispatcher.close();
+    }
+}
@@ -0,0 +1,15 @@
+package com.codeapi.customer;
+
+public record CustomerBatchResult(
+        int index,
+        String email,
+        Status status,
+        String message
+) {
+
+    public enum Status {
+        CREATED,
+        DUPLICATE,
+        INVALID
+    }
+}
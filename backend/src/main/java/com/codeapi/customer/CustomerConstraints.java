@@ -0,0 +1,27 @@
+package com.codeapi.customer;
+
+/**
+ * The limits the customer table (V1__Initial_SetUp.sql) puts on a row, for writes that reach the database only
+ * after they were acknowledged and so can no longer be refused by it.
+ */
+final class CustomerConstraints {
+
+    static final int NAME_MAX_LENGTH = 25;
+
+    private CustomerConstraints() {}
+
+    // null when the values fit; unless required, a null value stands for an unchanged column and is not checked
+    static String violation(String name, String email, Integer age, boolean required) {
+        if (required && (name == null || email == null || age == null)) {
+            return "Name, email and age are required";
+        }
+        if (name != null && name.codePointCount(0, name.length()) > NAME_MAX_LENGTH) {
+            return "Name must not be longer than %s characters".formatted(NAME_MAX_LENGTH);
+        }
+        // text columns cannot store NUL
+        if ((name != null && name.indexOf('\0') >= 0) || (email != null && email.indexOf('\0') >= 0)) {
+            return "Name and email must not contain NUL characters";
+        }
+        return null;
+    }
+}
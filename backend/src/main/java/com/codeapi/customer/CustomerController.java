@@ -1,28 +1,91 @@
 package com.codeapi.customer;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Optional;
 
 @RestController
+@Profile("!reactive")
 @RequestMapping ("api/v1/customers")
 public class CustomerController {
 
     private final CustomerService customerService;
+    private final ObjectMapper objectMapper;
 
-    public CustomerController(CustomerService customerService) {
+    public CustomerController(CustomerService customerService, ObjectMapper objectMapper) {
         this.customerService = customerService;
+        this.objectMapper = objectMapper;
     }
 
 
+    // JSON, the common case, is written by CustomerJsonWriter; the binary formats go through their converters
     @GetMapping
-    public List<Customer> getAllCustomer() {
-        return customerService.getAllCustomers();
+    public ResponseEntity<?> getAllCustomer(@RequestParam (value = "after", required = false) String after,
+                                            @RequestParam (value = "limit", required = false) Integer limit,
+                                            @RequestParam (value = "ageMin", required = false) Integer ageMin,
+                                            @RequestParam (value = "ageMax", required = false) Integer ageMax,
+                                            @RequestParam (value = "namePrefix", required = false) String namePrefix,
+                                            @RequestParam (value = "emailDomain", required = false) String emailDomain,
+                                            @RequestParam (value = "sort", required = false) String sort,
+                                            @RequestHeader (value = HttpHeaders.ACCEPT, required = false) String accept) {
+        CustomerFilter filter = new CustomerFilter(ageMin, ageMax, namePrefix, emailDomain);
+        Optional<CustomerRepresentation> representation = CustomerRepresentation.negotiate(accept);
+        if (representation.isPresent() && representation.get() == CustomerRepresentation.JSON) {
+            return ResponseEntity.ok()
+                                 .contentType(MediaType.APPLICATION_JSON)
+                                 .body(customerService.getCustomersJson(filter, CustomerSort.of(sort), after, limit));
+        }
+        CustomerPage page = customerService.getCustomers(filter, CustomerSort.of(sort), after, limit);
+        return representation.map(r -> ResponseEntity.ok().contentType(r.mediaType()).body(page))
+                             .orElseGet(() -> ResponseEntity.ok().body(page));
     }
 
+    @GetMapping (params = "ids")
+    public CustomerLookup getCustomersByIds(@RequestParam ("ids") List<Long> ids) {
+        return customerService.selectCustomersByIds(ids);
+    }
+
+    @GetMapping ("search")
+    public CustomerSearchPage searchCustomers(@RequestParam ("q") String query,
+                                              @RequestParam (value = "offset", required = false) Integer offset,
+                                              @RequestParam (value = "limit", required = false) Integer limit) {
+        return customerService.searchCustomers(query, offset, limit);
+    }
+
+    @GetMapping (value = "export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportCustomers() {
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                customerService.exportCustomers(new CustomerJsonWriter(generator));
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    // a matching If-None-Match is answered with 304 before the body is serialized, so the format is negotiated here
+    // and pinned as the content type: the tag has to name the representation the converters will write
     @GetMapping ("{id}")
-    public Customer selectCustomerById(@PathVariable ("id") Long id) {
-        return customerService.selectCustomerById(id);
+    public ResponseEntity<Customer> selectCustomerById(@PathVariable ("id") Long id,
+                                                       @RequestHeader (value = HttpHeaders.ACCEPT, required = false) String accept) {
+        Customer customer = customerService.selectCustomerById(id);
+        return CustomerRepresentation.negotiate(accept)
+                                     .map(representation -> ResponseEntity.ok()
+                                                                          .contentType(representation.mediaType())
+                                                                          .eTag(representation.eTag(customer.getVersion()))
+                                                                          .body(customer))
+                                     // nothing acceptable: left to the converters to refuse
+                                     .orElseGet(() -> ResponseEntity.ok().body(customer));
     }
 
     @PostMapping
@@ -30,14 +93,28 @@ public class CustomerController {
         customerService.insertCustomer(dto);
     }
 
+    @PostMapping ("batch")
+    public List<CustomerBatchResult> insertCustomers(@RequestBody List<CustomerDto> dtos) {
+        return customerService.insertCustomers(dtos);
+    }
+
+    @PostMapping (value = "import", consumes = {"text/csv", MediaType.APPLICATION_NDJSON_VALUE})
+    public CustomerImportResult importCustomers(@RequestHeader (HttpHeaders.CONTENT_TYPE) MediaType contentType,
+                                                InputStream body) {
+        return customerService.importCustomers(
+                new InputStreamReader(body, StandardCharsets.UTF_8), CustomerImportFormat.of(contentType));
+    }
+
     @DeleteMapping ("{id}")
     public void deleteCustomer(@PathVariable ("id") Long id) {
         customerService.deleteCustomer(id);
     }
 
     @PutMapping ("{id}")
-    public void updateCustomer(@PathVariable ("id") Long id, @RequestBody CustomerDto dto) {
-        customerService.updateCustomer(id, dto);
+    public void updateCustomer(@PathVariable ("id") Long id,
+                               @RequestHeader (value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                               @RequestBody CustomerDto dto) {
+        customerService.updateCustomer(id, dto, CustomerRepresentation.expectedVersion(ifMatch));
     }
 
 }
@@ -0,0 +1,54 @@
+package com.codeapi.customer;
+
+import com.codeapi.exception.RequestValidationException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Keyset position after the last customer of a page: its sort key and id, so the next page starts from values the
+ * cursor carries itself rather than from a row that may since have changed or gone. Clients see an opaque token,
+ * tied to the sort it was issued for; in id order the token is just the id.
+ */
+public record CustomerCursor(CustomerSort sort, String key, long id) {
+
+    public static CustomerCursor decode(String token, CustomerSort sort) {
+        if (sort.isById()) {
+            try {
+                long id = Long.parseLong(token);
+                if (id >= 0) return new CustomerCursor(sort, null, id);
+            } catch (NumberFormatException ignored) {
+                // reported below
+            }
+            throw invalid();
+        }
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split("\n", 3);
+            if (parts.length != 3 || !parts[0].equals(spec(sort))) throw invalid();
+            CustomerCursor cursor = new CustomerCursor(sort, parts[2], Long.parseLong(parts[1]));
+            cursor.keyValue();
+            return cursor;
+        } catch (IllegalArgumentException e) {
+            throw invalid();
+        }
+    }
+
+    public String encode() {
+        if (sort.isById()) return Long.toString(id);
+        String value = spec(sort) + "\n" + id + "\n" + key;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // the key as the sort column's type
+    public Object keyValue() {
+        return sort.column().equals("age") ? Integer.valueOf(key) : key;
+    }
+
+    private static String spec(CustomerSort sort) {
+        return (sort.descending() ? "-" : "") + sort.column();
+    }
+
+    private static RequestValidationException invalid() {
+        return new RequestValidationException("Cursor is not valid for this listing and sort");
+    }
+}
@@ -1,16 +1,42 @@
 package com.codeapi.customer;
 
+import java.io.Reader;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
 public interface CustomerDao {
 
     List<Customer> selectAllCustomers();
+    CustomerPage selectCustomersPage(Long after, int limit);
+    CustomerPage selectCustomersPage(CustomerFilter filter, CustomerSort sort, CustomerCursor after, int limit);
+    CustomerSearchPage searchCustomers(String query, int offset, int limit);
+    void streamAllCustomers(Consumer<Customer> consumer);
+    void writeAllCustomers(CustomerJsonWriter writer);
     Optional<Customer> selectCustomerById(Long id);
+    List<Customer> selectCustomersByIds(Collection<Long> ids);
     void insertCustomer(Customer customer);
+    void insertCustomers(List<Customer> customers);
+    CustomerImportResult importCustomers(Reader reader, CustomerImportFormat format);
     boolean existPersonWithEmail(String email);
-    void deleteCustomer(Long id);
+    Set<String> selectExistingEmails(Collection<String> emails);
+    boolean deleteCustomer(Long id);
     boolean existsCustomerById(Long id);
-    void updateCustomer(Customer customer);
+    int updateCustomer(CustomerUpdate update);
+    int[] updateCustomers(List<CustomerUpdate> updates);
+
+    default int updateCustomer(Customer customer) {
+        return updateCustomer(new CustomerUpdate(customer.getId(), customer.getName(), customer.getEmail(), customer.getAge()));
+    }
+
+    // engines that can hand rows to the writer without building the page first override this
+    default void writeCustomersPage(CustomerFilter filter, CustomerSort sort, CustomerCursor after, int limit,
+                                    CustomerJsonWriter writer) {
+        CustomerPage page = selectCustomersPage(filter, sort, after, limit);
+        page.customers().forEach(writer::write);
+        writer.endPage(page.nextCursor());
+    }
 
 }
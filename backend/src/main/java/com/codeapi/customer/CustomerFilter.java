@@ -0,0 +1,22 @@
+package com.codeapi.customer;
+
+public record CustomerFilter(
+        Integer ageMin,
+        Integer ageMax,
+        String namePrefix,
+        String emailDomain
+) {
+
+    public static final CustomerFilter NONE = new CustomerFilter(null, null, null, null);
+
+    public CustomerFilter {
+        namePrefix = namePrefix == null || namePrefix.isBlank() ? null : namePrefix.strip();
+        emailDomain = emailDomain == null || emailDomain.isBlank()
+                ? null
+                : emailDomain.strip().replaceFirst("^@", "").toLowerCase();
+    }
+
+    public boolean isEmpty() {
+        return ageMin == null && ageMax == null && namePrefix == null && emailDomain == null;
+    }
+}
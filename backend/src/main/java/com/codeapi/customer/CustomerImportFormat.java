@@ -0,0 +1,22 @@
+package com.codeapi.customer;
+
+import org.springframework.http.MediaType;
+
+public enum CustomerImportFormat {
+
+    CSV(MediaType.parseMediaType("text/csv")),
+    NDJSON(MediaType.APPLICATION_NDJSON);
+
+    private final MediaType mediaType;
+
+    CustomerImportFormat(MediaType mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    public static CustomerImportFormat of(MediaType contentType) {
+        for (CustomerImportFormat format : values()) {
+            if (format.mediaType.isCompatibleWith(contentType)) return format;
+        }
+        throw new IllegalArgumentException("Unsupported import content type " + contentType);
+    }
+}
@@ -0,0 +1,138 @@
+package com.codeapi.customer;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PushbackReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Reads a bulk import for engines that have no database to COPY it into, with the jdbc engine's semantics: CSV with a
+ * header line and name, email, age columns (an unquoted empty field is NULL), or one JSON document per line whose
+ * age only counts when it is a plain non-negative integer. Input the COPY would refuse fails the same way, with a
+ * {@link DataIntegrityViolationException}, before any row is returned.
+ */
+final class CustomerImportReader {
+
+    record Row(String name, String email, Integer age) {}
+
+    private static final ObjectMapper JSON = new ObjectMapper().enable(DeserializationFeature.FAIL_ON_TRAILING_TOKENS);
+    private static final Pattern AGE = Pattern.compile("[0-9]{1,9}");
+
+    private CustomerImportReader() {}
+
+    static List<Row> read(Reader reader, CustomerImportFormat format) {
+        try {
+            return switch (format) {
+                case CSV -> readCsv(new PushbackReader(reader));
+                case NDJSON -> readNdjson(new BufferedReader(reader));
+            };
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static List<Row> readCsv(PushbackReader in) throws IOException {
+        List<Row> rows = new ArrayList<>();
+        if (record(in) == null) return rows;
+        List<String> fields;
+        while ((fields = record(in)) != null) {
+            if (fields.size() != 3) {
+                throw new DataIntegrityViolationException(
+                        "Row %s has %s columns, expected name, email and age".formatted(rows.size() + 1, fields.size()));
+            }
+            rows.add(new Row(fields.get(0), fields.get(1), parseAge(fields.get(2))));
+        }
+        return rows;
+    }
+
+    // the next record's fields, or null at the end of the input
+    private static List<String> record(PushbackReader in) throws IOException {
+        int c = in.read();
+        if (c == -1) return null;
+        List<String> fields = new ArrayList<>(3);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        while (true) {
+            if (c == '"') {
+                quoted = true;
+                readQuoted(in, field);
+            } else if (c == ',') {
+                fields.add(quoted || !field.isEmpty() ? field.toString() : null);
+                field.setLength(0);
+                quoted = false;
+            } else if (c == '\n' || c == '\r' || c == -1) {
+                if (c == '\r') {
+                    int next = in.read();
+                    if (next != '\n' && next != -1) in.unread(next);
+                }
+                fields.add(quoted || !field.isEmpty() ? field.toString() : null);
+                return fields;
+            } else {
+                field.append((char) c);
+            }
+            c = in.read();
+        }
+    }
+
+    private static void readQuoted(PushbackReader in, StringBuilder field) throws IOException {
+        while (true) {
+            int c = in.read();
+            if (c == -1) throw new DataIntegrityViolationException("Unterminated CSV quoted field");
+            if (c == '"') {
+                int next = in.read();
+                if (next != '"') {
+                    if (next != -1) in.unread(next);
+                    return;
+                }
+            }
+            field.append((char) c);
+        }
+    }
+
+    private static Integer parseAge(String value) {
+        if (value == null) return null;
+        try {
+            return Integer.parseInt(value.strip());
+        } catch (NumberFormatException e) {
+            throw new DataIntegrityViolationException("Invalid age \"%s\"".formatted(value));
+        }
+    }
+
+    private static List<Row> readNdjson(BufferedReader in) throws IOException {
+        List<Row> rows = new ArrayList<>();
+        String line;
+        while ((line = in.readLine()) != null) {
+            if (line.isEmpty()) {
+                rows.add(new Row(null, null, null));
+                continue;
+            }
+            JsonNode doc;
+            try {
+                doc = JSON.readTree(line);
+            } catch (JsonProcessingException e) {
+                throw new DataIntegrityViolationException("Line %s is not valid JSON".formatted(rows.size() + 1), e);
+            }
+            String age = text(doc, "age");
+            rows.add(new Row(text(doc, "name"), text(doc, "email"),
+                             age != null && AGE.matcher(age).matches() ? Integer.valueOf(age) : null));
+        }
+        return rows;
+    }
+
+    // what ->> yields: strings unquoted, any other value as its JSON text, and null for JSON null or a missing field
+    private static String text(JsonNode doc, String field) {
+        JsonNode value = doc.get(field);
+        if (value == null || value.isNull()) return null;
+        return value.isTextual() ? value.textValue() : value.toString();
+    }
+}
@@ -0,0 +1,8 @@
+package com.codeapi.customer;
+
+public record CustomerImportResult(
+        long received,
+        long inserted,
+        long updated,
+        long skipped
+) {}
@@ -0,0 +1,505 @@
+package com.codeapi.customer;
+
+import com.codeapi.config.ReplicaRoutingDataSource;
+import io.micrometer.core.annotation.Timed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Repository;
+
+import java.io.Reader;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * CustomerDao held entirely in memory: a skip list keyed by id (ordered, so keyset pages are sub-map views) and a
+ * hash index that keeps emails unique. Reads are lock-free; writes to one customer are serialised on a striped lock
+ * so both indexes always agree. Stored customers are replaced, never mutated, and copied on the way out.
+ * <p>
+ * The engine loads every customer through the jdbc engine on startup. With write-behind enabled it replays each change
+ * against the jdbc engine, in order, on a background thread; ids are then assigned here, so this must be the only
+ * node writing to that database. Writes are checked against the table's constraints before they are accepted, and a
+ * replay that fails for any other reason is retried, holding back the changes after it, until it goes through.
+ */
+@Repository ("memory")
+@Primary
+@Timed ("customer.dao")
+@ConditionalOnProperty (name = "customer.dao.engine", havingValue = "memory")
+public class CustomerInMemoryDataAccessService implements CustomerDao, InitializingBean, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(CustomerInMemoryDataAccessService.class);
+    private static final int LOCK_STRIPES = 64;
+
+    private final ConcurrentSkipListMap<Long, Customer> customers = new ConcurrentSkipListMap<>();
+    private final ConcurrentHashMap<String, Long> idsByEmail = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+    private final CustomerDao source;
+    private ExecutorService writeBehind;
+
+    @Value("${customer.dao.memory.load-on-startup:true}")
+    private boolean loadOnStartup = true;
+
+    @Value("${customer.dao.memory.write-behind:false}")
+    private boolean writeBehindEnabled = false;
+
+    @Value("${customer.dao.memory.shutdown-timeout:30s}")
+    private Duration shutdownTimeout = Duration.ofSeconds(30);
+
+    // doubled after every failed attempt at the same change, up to the maximum
+    @Value("${customer.dao.memory.retry-backoff:100ms}")
+    private Duration retryBackoff = Duration.ofMillis(100);
+
+    @Value("${customer.dao.memory.max-retry-backoff:5s}")
+    private Duration maxRetryBackoff = Duration.ofSeconds(5);
+
+    // source may be null for a standalone engine that starts empty and never persists
+    public CustomerInMemoryDataAccessService(@Qualifier ("jdbc") CustomerDao source) {
+        this.source = source;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        if (writeBehindEnabled) {
+            Objects.requireNonNull(source, "Write-behind needs a jdbc engine to write to");
+            writeBehind = Executors.newSingleThreadExecutor(Thread.ofVirtual().name("customer-write-behind").factory());
+        }
+        if (loadOnStartup && source != null) {
+            long started = System.nanoTime();
+            // a lagging replica would leave out recent customers for the lifetime of this engine
+            ReplicaRoutingDataSource.onPrimary(() -> {
+                source.streamAllCustomers(this::load);
+                return null;
+            });
+            log.info("Loaded {} customers into memory in {} ms",
+                     customers.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        }
+    }
+
+    void load(Customer customer) {
+        Customer stored = copy(customer);
+        customers.put(stored.getId(), stored);
+        idsByEmail.put(stored.getEmail(), stored.getId());
+        sequence.accumulateAndGet(stored.getId(), Math::max);
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        if (writeBehind == null) return;
+        writeBehind.shutdown();
+        if (!writeBehind.awaitTermination(shutdownTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+            log.error("Customer write-behind did not drain within {}, {} changes were not persisted",
+                      shutdownTimeout, writeBehind.shutdownNow().size());
+        }
+    }
+
+    @Override
+    public List<Customer> selectAllCustomers() {
+        return customers.values().stream().map(CustomerInMemoryDataAccessService::copy).toList();
+    }
+
+    @Override
+    public CustomerPage selectCustomersPage(Long after, int limit) {
+        List<Customer> page = customers.tailMap(after == null ? 0L : after, false).values().stream()
+                                       .limit(limit + 1)
+                                       .map(CustomerInMemoryDataAccessService::copy)
+                                       .toList();
+        return toPage(page, limit);
+    }
+
+    // Mirrors the jdbc engine: the cursor's (key, id) position, compared the way the sort orders customers. In id order
+    // the skip list is walked from the cursor and stops at the limit; other orders keep only the best limit + 1
+    // matches while scanning instead of sorting them all.
+    @Override
+    public CustomerPage selectCustomersPage(CustomerFilter filter, CustomerSort sort, CustomerCursor after, int limit) {
+        List<Customer> page;
+        if (sort.isById()) {
+            NavigableMap<Long, Customer> range = after == null ? customers
+                    : sort.descending() ? customers.headMap(after.id(), false) : customers.tailMap(after.id(), false);
+            page = (sort.descending() ? range.descendingMap() : range).values().stream()
+                                                                      .filter(matches(filter))
+                                                                      .limit(limit + 1)
+                                                                      .map(CustomerInMemoryDataAccessService::copy)
+                                                                      .toList();
+        } else {
+            Predicate<Customer> position = customer -> true;
+            if (after != null) {
+                position = customer -> {
+                    int compared = compareKeys(sortKey(sort, customer), after.keyValue());
+                    if (compared == 0) compared = Long.compare(customer.getId(), after.id());
+                    return sort.descending() ? compared < 0 : compared > 0;
+                };
+            }
+            page = first(customers.values().stream().filter(matches(filter)).filter(position), comparator(sort), limit + 1)
+                    .stream()
+                    .map(CustomerInMemoryDataAccessService::copy)
+                    .toList();
+        }
+        if (page.size() <= limit) {
+            return new CustomerPage(page, null);
+        }
+        Customer last = page.get(limit - 1);
+        String key = sort.isById() ? null : String.valueOf(sortKey(sort, last));
+        return new CustomerPage(page.subList(0, limit), new CustomerCursor(sort, key, last.getId()).encode());
+    }
+
+    // substring match ranked by whole-word, then word-prefix hits; unlike the trigram index it does not forgive typos
+    @Override
+    public CustomerSearchPage searchCustomers(String query, int offset, int limit) {
+        String q = query.toLowerCase(Locale.ROOT);
+        // ranked once per match rather than on every comparison
+        List<Ranked> ranked = first(customers.values().stream()
+                                             .filter(customer -> document(customer).contains(q))
+                                             .map(customer -> new Ranked(customer, searchRank(customer, q))),
+                                    Comparator.comparingInt((Ranked r) -> -r.rank())
+                                              .thenComparing(r -> r.customer().getId()),
+                                    offset + limit + 1);
+        List<Customer> matches = ranked.stream()
+                                       .skip(offset)
+                                       .map(r -> copy(r.customer()))
+                                       .toList();
+        if (matches.size() <= limit) {
+            return new CustomerSearchPage(matches, null);
+        }
+        return new CustomerSearchPage(matches.subList(0, limit), offset + limit);
+    }
+
+    private record Ranked(Customer customer, int rank) {}
+
+    // the first count elements in order, keeping a heap of that size instead of sorting everything
+    private static <T> List<T> first(Stream<T> candidates, Comparator<T> order, int count) {
+        PriorityQueue<T> worstFirst = new PriorityQueue<>(count + 1, order.reversed());
+        candidates.forEach(candidate -> {
+            if (worstFirst.size() < count) {
+                worstFirst.add(candidate);
+            } else if (order.compare(candidate, worstFirst.peek()) < 0) {
+                worstFirst.poll();
+                worstFirst.add(candidate);
+            }
+        });
+        List<T> result = new ArrayList<>(worstFirst);
+        result.sort(order);
+        return result;
+    }
+
+    @Override
+    public void streamAllCustomers(Consumer<Customer> consumer) {
+        customers.values().forEach(customer -> consumer.accept(copy(customer)));
+    }
+
+    @Override
+    public void writeAllCustomers(CustomerJsonWriter writer) {
+        customers.values().forEach(writer::write);
+    }
+
+    @Override
+    public Optional<Customer> selectCustomerById(Long id) {
+        return Optional.ofNullable(customers.get(id)).map(CustomerInMemoryDataAccessService::copy);
+    }
+
+    @Override
+    public List<Customer> selectCustomersByIds(Collection<Long> ids) {
+        List<Customer> found = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Customer customer = customers.get(id);
+            if (customer != null) found.add(copy(customer));
+        }
+        return found;
+    }
+
+    @Override
+    public void insertCustomer(Customer customer) {
+        check(customer.getName(), customer.getEmail(), customer.getAge(), true);
+        // a preset id is kept, as the jdbc engine does
+        long id;
+        if (customer.getId() == null) {
+            id = sequence.incrementAndGet();
+        } else {
+            id = customer.getId();
+            sequence.accumulateAndGet(id, Math::max);
+        }
+        reserveEmail(customer.getEmail(), id);
+        Customer stored = new Customer(id, customer.getName(), customer.getEmail(), customer.getAge(), 0L);
+        ReentrantLock lock = lockFor(id);
+        lock.lock();
+        try {
+            if (customers.putIfAbsent(id, stored) != null) {
+                idsByEmail.remove(stored.getEmail(), id);
+                throw new DuplicateKeyException("Customer with id [%s] already exists".formatted(id));
+            }
+            writeBehind(dao -> dao.insertCustomer(copy(stored)));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // all or nothing, like the jdbc batch inside the service's transaction
+    @Override
+    public void insertCustomers(List<Customer> customers) {
+        customers.forEach(customer -> check(customer.getName(), customer.getEmail(), customer.getAge(), true));
+        List<Customer> stored = new ArrayList<>(customers.size());
+        try {
+            for (Customer customer : customers) {
+                long id = sequence.incrementAndGet();
+                reserveEmail(customer.getEmail(), id);
+                stored.add(new Customer(id, customer.getName(), customer.getEmail(), customer.getAge(), 0L));
+            }
+        } catch (DuplicateKeyException e) {
+            stored.forEach(customer -> idsByEmail.remove(customer.getEmail(), customer.getId()));
+            throw e;
+        }
+        for (Customer customer : stored) {
+            ReentrantLock lock = lockFor(customer.getId());
+            lock.lock();
+            try {
+                this.customers.put(customer.getId(), customer);
+                writeBehind(dao -> dao.insertCustomer(copy(customer)));
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    // the jdbc engine's merge: rows the table cannot hold are skipped, several rows for one email count once, and
+    // an existing customer is only updated (and its version bumped) when the row changes it
+    @Override
+    public CustomerImportResult importCustomers(Reader reader, CustomerImportFormat format) {
+        List<CustomerImportReader.Row> rows = CustomerImportReader.read(reader, format);
+        Map<String, CustomerImportReader.Row> byEmail = new LinkedHashMap<>();
+        for (CustomerImportReader.Row row : rows) {
+            if (CustomerConstraints.violation(row.name(), row.email(), row.age(), true) == null) {
+                byEmail.put(row.email().toLowerCase(Locale.ROOT), row);
+            }
+        }
+
+        long inserted = 0;
+        long updated = 0;
+        for (Map.Entry<String, CustomerImportReader.Row> entry : byEmail.entrySet()) {
+            CustomerImportReader.Row row = entry.getValue();
+            Long id = idsByEmail.get(entry.getKey());
+            if (id == null) {
+                try {
+                    insertCustomer(new Customer(row.name(), entry.getKey(), row.age()));
+                    inserted++;
+                    continue;
+                } catch (DuplicateKeyException e) {
+                    id = idsByEmail.get(entry.getKey());
+                    if (id == null) throw e;
+                }
+            }
+            updated += updateCustomer(new CustomerUpdate(id, row.name(), null, row.age()));
+        }
+        return new CustomerImportResult(rows.size(), inserted, updated, rows.size() - inserted - updated);
+    }
+
+    @Override
+    public boolean existPersonWithEmail(String email) {
+        return idsByEmail.containsKey(email);
+    }
+
+    @Override
+    public Set<String> selectExistingEmails(Collection<String> emails) {
+        Set<String> existing = new HashSet<>();
+        for (String email : emails) {
+            if (idsByEmail.containsKey(email)) existing.add(email);
+        }
+        return existing;
+    }
+
+    @Override
+    public boolean deleteCustomer(Long id) {
+        ReentrantLock lock = lockFor(id);
+        lock.lock();
+        try {
+            Customer removed = customers.remove(id);
+            if (removed == null) return false;
+            idsByEmail.remove(removed.getEmail(), id);
+            writeBehind(dao -> dao.deleteCustomer(id));
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean existsCustomerById(Long id) {
+        return customers.containsKey(id);
+    }
+
+    // same contract as the jdbc engine's guarded UPDATE: 0 when missing, stale or unchanged
+    @Override
+    public int updateCustomer(CustomerUpdate update) {
+        check(update.name(), update.email(), update.age(), false);
+        Long id = update.id();
+        ReentrantLock lock = lockFor(id);
+        lock.lock();
+        try {
+            Customer current = customers.get(id);
+            if (current == null) return 0;
+            if (update.expectedVersion() != null && !update.expectedVersion().equals(current.getVersion())) return 0;
+
+            String name = update.name() == null ? current.getName() : update.name();
+            String email = update.email() == null ? current.getEmail() : update.email();
+            Integer age = update.age() == null ? current.getAge() : update.age();
+            boolean emailChanged = !email.equals(current.getEmail());
+            if (!emailChanged && name.equals(current.getName()) && age.equals(current.getAge())) return 0;
+
+            if (emailChanged) reserveEmail(email, id);
+            customers.put(id, new Customer(id, name, email, age, current.getVersion() + 1));
+            if (emailChanged) idsByEmail.remove(current.getEmail(), id);
+
+            CustomerUpdate persisted = new CustomerUpdate(id, update.name(), update.email(), update.age());
+            writeBehind(dao -> dao.updateCustomer(persisted));
+            return 1;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int[] updateCustomers(List<CustomerUpdate> updates) {
+        int[] counts = new int[updates.size()];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = updateCustomer(updates.get(i));
+        }
+        return counts;
+    }
+
+    private void reserveEmail(String email, long id) {
+        if (idsByEmail.putIfAbsent(email, id) != null) {
+            throw new DuplicateKeyException("Email %s is already exist".formatted(email));
+        }
+    }
+
+    // submitted under the customer's lock, so the single writer thread sees changes to one customer in order
+    private void writeBehind(Consumer<CustomerDao> change) {
+        if (writeBehind == null) return;
+        writeBehind.execute(() -> replay(change));
+    }
+
+    // a rejected change cannot succeed on retry; anything else (a lost connection, a failover) is waited out
+    private void replay(Consumer<CustomerDao> change) {
+        Duration backoff = retryBackoff;
+        while (true) {
+            try {
+                change.accept(source);
+                return;
+            } catch (DataIntegrityViolationException e) {
+                log.error("Customer write-behind was rejected, memory and database now differ", e);
+                return;
+            } catch (RuntimeException e) {
+                log.warn("Customer write-behind failed, retrying in {}", backoff, e);
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    log.error("Customer write-behind stopped while retrying, memory and database now differ");
+                    return;
+                }
+                backoff = Duration.ofMillis(Math.min(backoff.toMillis() * 2, maxRetryBackoff.toMillis()));
+            }
+        }
+    }
+
+    private static void check(String name, String email, Integer age, boolean required) {
+        String violation = CustomerConstraints.violation(name, email, age, required);
+        if (violation != null) throw new DataIntegrityViolationException(violation);
+    }
+
+    private ReentrantLock lockFor(Long id) {
+        return locks[Long.hashCode(id) & (LOCK_STRIPES - 1)];
+    }
+
+    private static Predicate<Customer> matches(CustomerFilter filter) {
+        String prefix = filter.namePrefix() == null ? null : filter.namePrefix().toLowerCase(Locale.ROOT);
+        return customer -> (filter.ageMin() == null || customer.getAge() >= filter.ageMin())
+                && (filter.ageMax() == null || customer.getAge() <= filter.ageMax())
+                && (prefix == null || customer.getName().toLowerCase(Locale.ROOT).startsWith(prefix))
+                && (filter.emailDomain() == null || filter.emailDomain().equals(emailDomain(customer.getEmail())));
+    }
+
+    // same ordering as the jdbc engine's sort keys, including the case-insensitive byte order for names
+    private static Comparator<Customer> comparator(CustomerSort sort) {
+        Function<Customer, Comparable<?>> key = customer -> sortKey(sort, customer);
+        @SuppressWarnings ({"unchecked", "rawtypes"})
+        Comparator<Customer> order = Comparator.comparing((Function) key);
+        order = order.thenComparing(Customer::getId);
+        return sort.descending() ? order.reversed() : order;
+    }
+
+    @SuppressWarnings ({"unchecked", "rawtypes"})
+    private static int compareKeys(Comparable<?> key, Object other) {
+        return ((Comparable) key).compareTo(other);
+    }
+
+    private static Comparable<?> sortKey(CustomerSort sort, Customer customer) {
+        return switch (sort.column()) {
+            case "name" -> customer.getName().toLowerCase(Locale.ROOT);
+            case "email" -> customer.getEmail();
+            case "age" -> customer.getAge();
+            default -> customer.getId();
+        };
+    }
+
+    private static String emailDomain(String email) {
+        String[] parts = email.split("@", 3);
+        return parts.length > 1 ? parts[1] : "";
+    }
+
+    private static String document(Customer customer) {
+        return (customer.getName() + " " + customer.getEmail()).toLowerCase(Locale.ROOT);
+    }
+
+    private static int searchRank(Customer customer, String query) {
+        int rank = 0;
+        for (String word : document(customer).split(" ")) {
+            if (word.equals(query)) return 2;
+            if (word.startsWith(query)) rank = 1;
+        }
+        return rank;
+    }
+
+    private static CustomerPage toPage(List<Customer> customers, int limit) {
+        if (customers.size() <= limit) {
+            return new CustomerPage(customers, null);
+        }
+        return new CustomerPage(customers.subList(0, limit), String.valueOf(customers.get(limit - 1).getId()));
+    }
+
+    private static Customer copy(Customer customer) {
+        return new Customer(customer.getId(), customer.getName(), customer.getEmail(), customer.getAge(), customer.getVersion());
+    }
+}
@@ -1,45 +1,288 @@
 package com.codeapi.customer;
 
+import com.codeapi.config.ReadReplica;
+import io.micrometer.core.annotation.Timed;
+import org.postgresql.PGConnection;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.stereotype.Repository;
 
-import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.sql.Types;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
-
-import static org.springframework.util.StringUtils.*;
+import java.util.Set;
+import java.util.function.Consumer;
 
 @Repository ("jdbc")
+@Timed ("customer.dao")
 public class CustomerJDBCDataAccessService implements CustomerDao {
 
+    private static final int VERSION_CHECK = 1 << 3;
+    private static final String[] UPDATE_SQL = buildUpdateStatements();
+
     private final JdbcTemplate jdbcTemplate;
 
+    @Value("${customer.export.fetch-size:1000}")
+    private int exportFetchSize = 1000;
+
+    @Value("${customer.batch.chunk-size:1000}")
+    private int batchChunkSize = 1000;
+
+    @Value("${customer.search.max-candidates:2000}")
+    private int searchMaxCandidates = 2000;
+
     public CustomerJDBCDataAccessService(JdbcTemplate jdbcTemplate) {
         this.jdbcTemplate = jdbcTemplate;
     }
 
 
     @Override
+    @ReadReplica
     public List<Customer> selectAllCustomers() {
         String sql = """
-                SELECT c.id, c.name, c.email, c.age FROM customer c
+                SELECT c.id, c.name, c.email, c.age, c.version FROM customer c
                 """;
         return jdbcTemplate.query(sql, new CustomerRowMapper());
     }
 
+    @Override
+    @ReadReplica
+    public CustomerPage selectCustomersPage(Long after, int limit) {
+        String sql = """
+                SELECT c.id, c.name, c.email, c.age, c.version FROM customer c
+                WHERE c.id > ?
+                ORDER BY c.id
+                LIMIT ?
+                """;
+        List<Customer> customers = jdbcTemplate.query(sql, new CustomerRowMapper(), after == null ? 0L : after, limit + 1);
+        return toPage(customers, limit);
+    }
+
+    // The cursor carries the (key, id) position itself, so every page is a range scan on the (key, id) index no matter
+    // how deep the client has paged, and it stays valid when the row it came from is updated or deleted.
+    @Override
+    @ReadReplica
+    public CustomerPage selectCustomersPage(CustomerFilter filter, CustomerSort sort, CustomerCursor after, int limit) {
+        List<Object> params = new ArrayList<>();
+        String sql = pageSql(filter, sort, after, limit, params);
+        List<String> keys = new ArrayList<>();
+        CustomerRowMapper rowMapper = new CustomerRowMapper();
+        List<Customer> customers = jdbcTemplate.query(sql, (rs, rowNum) -> {
+            if (!sort.isById()) keys.add(rs.getString("sort_key"));
+            return rowMapper.mapRow(rs, rowNum);
+        }, params.toArray());
+        if (customers.size() <= limit) {
+            return new CustomerPage(customers, null);
+        }
+        Customer last = customers.get(limit - 1);
+        String key = sort.isById() ? null : keys.get(limit - 1);
+        return new CustomerPage(customers.subList(0, limit), new CustomerCursor(sort, key, last.getId()).encode());
+    }
+
+    // the same page, with rows going from the driver straight to the writer; the row past the limit is not written,
+    // it only tells whether there is a next page
+    @Override
+    @ReadReplica
+    public void writeCustomersPage(CustomerFilter filter, CustomerSort sort, CustomerCursor after, int limit,
+                                   CustomerJsonWriter writer) {
+        List<Object> params = new ArrayList<>();
+        String sql = pageSql(filter, sort, after, limit, params);
+        class PageRows implements RowCallbackHandler {
+            private int count;
+            private long lastId;
+            private String lastKey;
+
+            @Override
+            public void processRow(ResultSet rs) throws SQLException {
+                if (++count > limit) return;
+                writer.writeRow(rs);
+                lastId = rs.getLong(1);
+                if (!sort.isById()) lastKey = rs.getString("sort_key");
+            }
+        }
+        PageRows rows = new PageRows();
+        jdbcTemplate.query(sql, rows, params.toArray());
+        writer.endPage(rows.count > limit ? new CustomerCursor(sort, rows.lastKey, rows.lastId).encode() : null);
+    }
+
+    // selects CustomerJsonWriter.COLUMNS, plus the sort key as sort_key unless sorting by id, and one row past the limit
+    private static String pageSql(CustomerFilter filter, CustomerSort sort, CustomerCursor after, int limit,
+                                  List<Object> params) {
+        StringBuilder sql = new StringBuilder("""
+                SELECT %s%s FROM customer c
+                WHERE TRUE""".formatted(CustomerJsonWriter.COLUMNS,
+                                        sort.isById() ? "" : ", " + sortKey(sort, "c") + " AS sort_key"));
+        if (filter.ageMin() != null) {
+            sql.append(" AND c.age >= ?");
+            params.add(filter.ageMin());
+        }
+        if (filter.ageMax() != null) {
+            sql.append(" AND c.age <= ?");
+            params.add(filter.ageMax());
+        }
+        if (filter.namePrefix() != null) {
+            sql.append(" AND lower(c.name) COLLATE \"C\" LIKE ?");
+            params.add(escapeLike(filter.namePrefix().toLowerCase()) + "%");
+        }
+        if (filter.emailDomain() != null) {
+            sql.append(" AND split_part(c.email, '@', 2) = ?");
+            params.add(filter.emailDomain());
+        }
+        String comparison = sort.descending() ? "<" : ">";
+        if (after != null && sort.isById()) {
+            sql.append(" AND c.id %s ?".formatted(comparison));
+            params.add(after.id());
+        } else if (after != null) {
+            sql.append(" AND (%s, c.id) %s (?, ?)".formatted(sortKey(sort, "c"), comparison));
+            params.add(after.keyValue());
+            params.add(after.id());
+        }
+        String direction = sort.descending() ? " DESC" : "";
+        sql.append(sort.isById()
+                ? " ORDER BY c.id%s".formatted(direction)
+                : " ORDER BY %1$s%2$s, c.id%2$s".formatted(sortKey(sort, "c"), direction));
+        sql.append(" LIMIT ?");
+        params.add(limit + 1);
+        return sql.toString();
+    }
+
+    // Either index can produce a candidate: the tsvector for whole words, the trigram index for fragments and typos.
+    // Ranking only ever touches the max-candidates matches with the lowest ids, so a very common term costs about the
+    // same as a rare one and every page of a query ranks the same candidates. (Ordering candidates by anything the
+    // indexes cannot supply would mean reading every match of a common term first.)
+    @Override
+    @ReadReplica
+    public CustomerSearchPage searchCustomers(String query, int offset, int limit) {
+        String sql = """
+                SELECT c.id, c.name, c.email, c.age, c.version
+                FROM (
+                    SELECT c.*, q
+                    FROM customer c, plainto_tsquery('simple', ?) q
+                    WHERE c.search_vector @@ q OR ? <% (c.name || ' ' || c.email)
+                    ORDER BY c.id
+                    LIMIT ?
+                ) c
+                ORDER BY ts_rank(c.search_vector, c.q) + word_similarity(?, c.name || ' ' || c.email) DESC, c.id
+                OFFSET ?
+                LIMIT ?
+                """;
+        List<Customer> customers = jdbcTemplate.query(sql, new CustomerRowMapper(),
+                query, query, searchMaxCandidates, query, offset, limit + 1);
+        if (customers.size() <= limit) {
+            return new CustomerSearchPage(customers, null);
+        }
+        return new CustomerSearchPage(customers.subList(0, limit), offset + limit);
+    }
+
+    private static CustomerPage toPage(List<Customer> customers, int limit) {
+        if (customers.size() <= limit) {
+            return new CustomerPage(customers, null);
+        }
+        List<Customer> page = customers.subList(0, limit);
+        return new CustomerPage(page, String.valueOf(page.get(limit - 1).getId()));
+    }
+
+    // must match the index expressions in V3__Add_Customer_Filter_Indexes.sql
+    private static String sortKey(CustomerSort sort, String alias) {
+        return sort.column().equals("name")
+                ? "lower(%s.name) COLLATE \"C\"".formatted(alias)
+                : "%s.%s".formatted(alias, sort.column());
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    @Override
+    @ReadReplica
+    public void streamAllCustomers(Consumer<Customer> consumer) {
+        CustomerRowMapper rowMapper = new CustomerRowMapper();
+        scanAllCustomers(rs -> consumer.accept(rowMapper.mapRow(rs, 0)));
+    }
+
+    // rows go from the driver straight to the writer, without a Customer per row
+    @Override
+    @ReadReplica
+    public void writeAllCustomers(CustomerJsonWriter writer) {
+        scanAllCustomers(writer::writeRow);
+    }
+
+    private void scanAllCustomers(RowCallbackHandler handler) {
+        String sql = """
+                SELECT %s FROM customer c
+                """.formatted(CustomerJsonWriter.COLUMNS);
+        // PgJDBC only honours the fetch size (server-side cursor) outside of auto-commit mode
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try (PreparedStatement ps = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                ps.setFetchSize(exportFetchSize);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        handler.processRow(rs);
+                    }
+                }
+            } finally {
+                connection.rollback();
+                connection.setAutoCommit(autoCommit);
+            }
+            return null;
+        });
+    }
+
+    // stays on the primary: the service caches this row for minutes and checks If-Match against it
     @Override
     public Optional<Customer> selectCustomerById(Long id) {
         String sql = """
-                SELECT * FROM customer WHERE id = ?
+                SELECT c.id, c.name, c.email, c.age, c.version FROM customer c WHERE c.id = ?
                 """;
         return jdbcTemplate.query(sql, new CustomerRowMapper(), id).stream().findFirst();
     }
 
+    // primary for the same reason as above; rows come back in no particular order
+    @Override
+    public List<Customer> selectCustomersByIds(Collection<Long> ids) {
+        String sql = """
+                SELECT c.id, c.name, c.email, c.age, c.version FROM customer c WHERE c.id = ANY(?)
+                """;
+        return jdbcTemplate.query(
+                sql,
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", ids.toArray())),
+                new CustomerRowMapper()
+        );
+    }
+
     @Override
     public void insertCustomer(Customer customer) {
+        // engines that assign ids themselves (the in-memory one, writing behind) hand them down; the sequence is moved
+        // past them so that inserts without an id still work once that engine is switched off
+        if (customer.getId() != null) {
+            String sql = """
+                    WITH inserted AS (
+                        INSERT INTO customer(id, name, email, age)
+                        VALUES (?, ?, ?, ?)
+                        RETURNING id
+                    )
+                    SELECT setval('customer_id_seq', GREATEST(i.id, s.last_value)) FROM inserted i, customer_id_seq s
+                    """;
+            jdbcTemplate.queryForObject(sql, Long.class,
+                                        customer.getId(), customer.getName(), customer.getEmail(), customer.getAge());
+            return;
+        }
         String sql = """
                 INSERT INTO customer(name, email, age)
                 VALUES (?, ?, ?)
@@ -47,6 +290,103 @@ public class CustomerJDBCDataAccessService implements CustomerDao {
         jdbcTemplate.update(sql, customer.getName(), customer.getEmail(), customer.getAge());
     }
 
+    // Inside a transaction a failed batch is rolled back to a savepoint: earlier chunks are undone and the transaction
+    // stays usable, so the caller can sort out the rejected rows and insert the rest.
+    @Override
+    public void insertCustomers(List<Customer> customers) {
+        String sql = """
+                INSERT INTO customer(name, email, age)
+                VALUES (?, ?, ?)
+                """;
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            Savepoint savepoint = connection.getAutoCommit() ? null : connection.setSavepoint();
+            try {
+                jdbcTemplate.batchUpdate(sql, customers, batchChunkSize, (ps, customer) -> {
+                    ps.setString(1, customer.getName());
+                    ps.setString(2, customer.getEmail());
+                    ps.setInt(3, customer.getAge());
+                });
+            } catch (RuntimeException e) {
+                if (savepoint != null) connection.rollback(savepoint);
+                throw e;
+            }
+            if (savepoint != null) connection.releaseSavepoint(savepoint);
+            return null;
+        });
+    }
+
+    @Override
+    public CustomerImportResult importCustomers(Reader reader, CustomerImportFormat format) {
+        String stagingSql = switch (format) {
+            case CSV -> """
+                    CREATE TEMPORARY TABLE customer_import (name TEXT, email TEXT, age INT) ON COMMIT DROP
+                    """;
+            case NDJSON -> """
+                    CREATE TEMPORARY TABLE customer_import_json (doc JSONB) ON COMMIT DROP
+                    """;
+        };
+        // NDJSON lines are loaded as single CSV fields; the control characters never occur in JSON text
+        String copySql = switch (format) {
+            case CSV -> """
+                    COPY customer_import (name, email, age) FROM STDIN WITH (FORMAT csv, HEADER true)
+                    """;
+            case NDJSON -> """
+                    COPY customer_import_json (doc) FROM STDIN WITH (FORMAT csv, QUOTE E'\\x01', DELIMITER E'\\x02')
+                    """;
+        };
+        String source = switch (format) {
+            case CSV -> """
+                    SELECT name, email, age FROM customer_import
+                    """;
+            case NDJSON -> """
+                    SELECT doc->>'name' AS name,
+                           doc->>'email' AS email,
+                           CASE WHEN doc->>'age' ~ '^[0-9]{1,9}$' THEN (doc->>'age')::INT END AS age
+                    FROM customer_import_json
+                    """;
+        };
+        String mergeSql = """
+                WITH merged AS (
+                    INSERT INTO customer (name, email, age)
+                    SELECT DISTINCT ON (i.email) i.name, i.email, i.age
+                    FROM (SELECT s.name, lower(s.email) AS email, s.age FROM (%s) s) i
+                    WHERE i.name IS NOT NULL AND char_length(i.name) <= 25
+                      AND i.email IS NOT NULL AND i.age IS NOT NULL
+                    ORDER BY i.email
+                    ON CONFLICT (email) DO UPDATE SET name = EXCLUDED.name, age = EXCLUDED.age, version = customer.version + 1
+                    WHERE customer.name IS DISTINCT FROM EXCLUDED.name OR customer.age IS DISTINCT FROM EXCLUDED.age
+                    RETURNING (xmax = 0) AS inserted
+                )
+                SELECT count(*) FILTER (WHERE inserted) AS inserted,
+                       count(*) FILTER (WHERE NOT inserted) AS updated
+                FROM merged
+                """.formatted(source);
+
+        return jdbcTemplate.execute((ConnectionCallback<CustomerImportResult>) connection -> {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try (Statement statement = connection.createStatement()) {
+                statement.execute(stagingSql);
+                long received = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(copySql, reader);
+                try (ResultSet rs = statement.executeQuery(mergeSql)) {
+                    rs.next();
+                    long inserted = rs.getLong("inserted");
+                    long updated = rs.getLong("updated");
+                    connection.commit();
+                    return new CustomerImportResult(received, inserted, updated, received - inserted - updated);
+                }
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } catch (IOException e) {
+                connection.rollback();
+                throw new UncheckedIOException(e);
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        });
+    }
+
     @Override
     public boolean existPersonWithEmail(String email) {
         String sql = """
@@ -57,13 +397,27 @@ public class CustomerJDBCDataAccessService implements CustomerDao {
     }
 
     @Override
-    public void deleteCustomer(Long id) {
+    public Set<String> selectExistingEmails(Collection<String> emails) {
+        String sql = """
+                SELECT c.email FROM customer c WHERE c.email = ANY(?)
+                """;
+        return new HashSet<>(jdbcTemplate.query(
+                sql,
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("text", emails.toArray())),
+                (rs, rowNum) -> rs.getString("email")
+        ));
+    }
+
+    @Override
+    public boolean deleteCustomer(Long id) {
         String sql = """
                 DELETE FROM customer WHERE id = ?
                 """;
-        jdbcTemplate.update(sql, id);
+        return jdbcTemplate.update(sql, id) > 0;
     }
 
+    // stays on the primary: the update path asks right after its UPDATE matched nothing, and a lagging replica could
+    // still be missing a customer the primary has, turning a no-op into a 404
     @Override
     public boolean existsCustomerById(Long id) {
         String sql = """
@@ -74,34 +428,72 @@ public class CustomerJDBCDataAccessService implements CustomerDao {
     }
 
     @Override
-    public void updateCustomer(Customer customer) {
-        StringBuilder sqlBuilder = new StringBuilder("UPDATE customer SET ");
-        List<Object> params = new ArrayList<>();
+    public int updateCustomer(CustomerUpdate update) {
+        return jdbcTemplate.update(updateSql(update), updateParams(update));
+    }
 
-        Field[] fields = Customer.class.getDeclaredFields();
-        for (Field field : fields) {
-            String fieldName = field.getName();
-            if (!fieldName.equals("id")) {
-                sqlBuilder.append(fieldName).append(" = ?, ");
-                try {
-                    Method getter = Customer.class.getMethod("get" + capitalize(fieldName));
-                    params.add(getter.invoke(customer));
-                } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
-                    throw new RuntimeException(e);
-                }
-            }
-        }
+    // A batch needs one statement text, so unchanged columns fall back to their current value through COALESCE;
+    // the same guard as updateSql() skips rows that would not change. Expected versions are not checked.
+    @Override
+    public int[] updateCustomers(List<CustomerUpdate> updates) {
+        String sql = """
+                UPDATE customer
+                SET name = COALESCE(?, name), email = COALESCE(?, email), age = COALESCE(?, age), version = version + 1
+                WHERE id = ? AND (name, email, age) IS DISTINCT FROM (COALESCE(?, name), COALESCE(?, email), COALESCE(?, age))
+                """;
+        int[][] counts = jdbcTemplate.batchUpdate(sql, updates, batchChunkSize, (ps, update) -> {
+            ps.setString(1, update.name());
+            ps.setString(2, update.email());
+            ps.setObject(3, update.age(), Types.INTEGER);
+            ps.setLong(4, update.id());
+            ps.setString(5, update.name());
+            ps.setString(6, update.email());
+            ps.setObject(7, update.age(), Types.INTEGER);
+        });
+        return Arrays.stream(counts).flatMapToInt(Arrays::stream).toArray();
+    }
 
-        sqlBuilder.setLength(sqlBuilder.length() - 2);
-        sqlBuilder.append(" WHERE id = ?");
-        try {
-            Method getId = Customer.class.getMethod("getId");
-            params.add(getId.invoke(customer));
-        } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
-            throw new RuntimeException(e);
+    static String updateSql(CustomerUpdate update) {
+        String sql = UPDATE_SQL[update.changedColumns() | (update.expectedVersion() == null ? 0 : VERSION_CHECK)];
+        if (sql == null) {
+            throw new IllegalArgumentException("Update for customer [%s] has no columns to set".formatted(update.id()));
         }
+        return sql;
+    }
 
-        jdbcTemplate.update(sqlBuilder.toString(), params.toArray());
+    // values are bound twice: once for SET and once for the IS DISTINCT FROM guard
+    static Object[] updateParams(CustomerUpdate update) {
+        int columns = Integer.bitCount(update.changedColumns());
+        Object[] params = new Object[columns * 2 + (update.expectedVersion() == null ? 1 : 2)];
+        int i = 0;
+        if (update.name() != null) params[i++] = update.name();
+        if (update.email() != null) params[i++] = update.email();
+        if (update.age() != null) params[i++] = update.age();
+        params[i++] = update.id();
+        if (update.expectedVersion() != null) params[i++] = update.expectedVersion();
+        System.arraycopy(params, 0, params, i, columns);
+        return params;
+    }
+
+    // One statement text per combination of changed columns (with or without a version check), so the driver
+    // can reuse its prepared statements. The guard makes a no-op update affect zero rows, so callers learn
+    // "not found, stale or unchanged" without a SELECT.
+    private static String[] buildUpdateStatements() {
+        String[] statements = new String[VERSION_CHECK << 1];
+        for (int key = 1; key < statements.length; key++) {
+            int columns = key & ~VERSION_CHECK;
+            if (columns == 0) continue;
+            List<String> names = new ArrayList<>(3);
+            if ((columns & CustomerUpdate.NAME) != 0) names.add("name");
+            if ((columns & CustomerUpdate.EMAIL) != 0) names.add("email");
+            if ((columns & CustomerUpdate.AGE) != 0) names.add("age");
+            statements[key] = "UPDATE customer SET %s, version = version + 1 WHERE id = ?%s AND (%s) IS DISTINCT FROM (%s)".formatted(
+                    String.join(", ", names.stream().map(name -> name + " = ?").toList()),
+                    (key & VERSION_CHECK) != 0 ? " AND version = ?" : "",
+                    String.join(", ", names),
+                    String.join(", ", names.stream().map(name -> "?").toList()));
+        }
+        return statements;
     }
 
 }
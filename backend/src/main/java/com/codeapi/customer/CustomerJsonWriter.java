@@ -0,0 +1,126 @@
+package com.codeapi.customer;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Writes customers straight into a generator, either from a result set row or from an entity, without Jackson's bean
+ * serializer: as newline-delimited JSON, or as the customers of a {@link CustomerPage} when created by
+ * {@link #page}. A row read by {@link #writeRow} never becomes a {@link Customer}; the field names are encoded once.
+ * Output matches what the default serializer would produce.
+ */
+public final class CustomerJsonWriter {
+
+    // the column order writeRow reads, by index
+    static final String COLUMNS = "c.id, c.name, c.email, c.age, c.version";
+
+    private static final SerializableString ID = new SerializedString("id");
+    private static final SerializableString NAME = new SerializedString("name");
+    private static final SerializableString EMAIL = new SerializedString("email");
+    private static final SerializableString AGE = new SerializedString("age");
+    private static final SerializableString VERSION = new SerializedString("version");
+    private static final SerializableString CUSTOMERS = new SerializedString("customers");
+    private static final SerializableString NEXT_CURSOR = new SerializedString("nextCursor");
+
+    private final JsonGenerator generator;
+    private final boolean page;
+    private boolean firstRow = true;
+
+    public CustomerJsonWriter(JsonGenerator generator) {
+        this(generator, false);
+        generator.setRootValueSeparator(null);
+    }
+
+    private CustomerJsonWriter(JsonGenerator generator, boolean page) {
+        this.generator = generator;
+        this.page = page;
+    }
+
+    // opens a page object; the rows written go into its customers array until endPage closes it
+    public static CustomerJsonWriter page(JsonGenerator generator) {
+        try {
+            generator.writeStartObject();
+            generator.writeFieldName(CUSTOMERS);
+            generator.writeStartArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new CustomerJsonWriter(generator, true);
+    }
+
+    public void endPage(String nextCursor) {
+        if (!page) throw new IllegalStateException("Not writing a page");
+        try {
+            generator.writeEndArray();
+            generator.writeFieldName(NEXT_CURSOR);
+            if (nextCursor == null) generator.writeNull();
+            else generator.writeString(nextCursor);
+            generator.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void writeRow(ResultSet rs) throws SQLException {
+        try {
+            generator.writeStartObject();
+            generator.writeFieldName(ID);
+            generator.writeNumber(rs.getLong(1));
+            generator.writeFieldName(NAME);
+            generator.writeString(rs.getString(2));
+            generator.writeFieldName(EMAIL);
+            generator.writeString(rs.getString(3));
+            generator.writeFieldName(AGE);
+            generator.writeNumber(rs.getInt(4));
+            generator.writeFieldName(VERSION);
+            generator.writeNumber(rs.getLong(5));
+            generator.writeEndObject();
+            endLine();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void write(Customer customer) {
+        try {
+            generator.writeStartObject();
+            generator.writeFieldName(ID);
+            writeNumber(customer.getId());
+            generator.writeFieldName(NAME);
+            generator.writeString(customer.getName());
+            generator.writeFieldName(EMAIL);
+            generator.writeString(customer.getEmail());
+            generator.writeFieldName(AGE);
+            if (customer.getAge() == null) generator.writeNull();
+            else generator.writeNumber(customer.getAge());
+            generator.writeFieldName(VERSION);
+            writeNumber(customer.getVersion());
+            generator.writeEndObject();
+            endLine();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeNumber(Long value) throws IOException {
+        if (value == null) generator.writeNull();
+        else generator.writeNumber(value);
+    }
+
+    private void endLine() throws IOException {
+        // a page is small and sent whole, its rows are array elements
+        if (page) return;
+        generator.writeRaw('\n');
+        // push the first row out immediately so clients see bytes before the scan completes
+        if (firstRow) {
+            firstRow = false;
+            generator.flush();
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.codeapi.customer;
+
+import java.util.List;
+
+public record CustomerPage(
+        List<Customer> customers,
+        String nextCursor
+) {}
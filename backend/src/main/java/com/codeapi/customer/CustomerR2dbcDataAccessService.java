@@ -0,0 +1,166 @@
+package com.codeapi.customer;
+
+import io.r2dbc.spi.Readable;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Repository("r2dbc")
+public class CustomerR2dbcDataAccessService implements ReactiveCustomerDao {
+
+    private static final int VERSION_CHECK = 1 << 3;
+    private static final String[] UPDATE_SQL = buildUpdateStatements();
+
+    private final DatabaseClient databaseClient;
+
+    @Value("${customer.reactive.fetch-size:500}")
+    private int fetchSize = 500;
+
+    public CustomerR2dbcDataAccessService(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+
+    @Override
+    public Mono<CustomerPage> selectCustomersPage(Long after, int limit) {
+        String sql = """
+                SELECT c.id, c.name, c.email, c.age, c.version FROM customer c
+                WHERE c.id > :after
+                ORDER BY c.id
+                LIMIT :limit
+                """;
+        return databaseClient.sql(sql)
+                .bind("after", after == null ? 0L : after)
+                .bind("limit", limit + 1)
+                .map(CustomerR2dbcDataAccessService::mapCustomer)
+                .all()
+                .collectList()
+                .map(customers -> {
+                    if (customers.size() <= limit) {
+                        return new CustomerPage(customers, null);
+                    }
+                    List<Customer> page = customers.subList(0, limit);
+                    return new CustomerPage(page, String.valueOf(page.get(limit - 1).getId()));
+                });
+    }
+
+    @Override
+    public Flux<Customer> streamAllCustomers() {
+        String sql = """
+                SELECT c.id, c.name, c.email, c.age, c.version FROM customer c
+                """;
+        // with a fetch size the driver reads through a portal and only asks for more rows as downstream demand arrives
+        return databaseClient.sql(sql)
+                .filter(statement -> statement.fetchSize(fetchSize))
+                .map(CustomerR2dbcDataAccessService::mapCustomer)
+                .all();
+    }
+
+    @Override
+    public Mono<Customer> selectCustomerById(Long id) {
+        String sql = """
+                SELECT c.id, c.name, c.email, c.age, c.version FROM customer c WHERE c.id = :id
+                """;
+        return databaseClient.sql(sql)
+                .bind("id", id)
+                .map(CustomerR2dbcDataAccessService::mapCustomer)
+                .one();
+    }
+
+    @Override
+    public Mono<Void> insertCustomer(Customer customer) {
+        String sql = """
+                INSERT INTO customer(name, email, age)
+                VALUES (:name, :email, :age)
+                """;
+        return databaseClient.sql(sql)
+                .bind("name", customer.getName())
+                .bind("email", customer.getEmail())
+                .bind("age", customer.getAge())
+                .then();
+    }
+
+    @Override
+    public Mono<Boolean> existPersonWithEmail(String email) {
+        String sql = """
+                SELECT EXISTS(SELECT 1 FROM customer WHERE email = :email)
+                """;
+        return databaseClient.sql(sql)
+                .bind("email", email)
+                .map(row -> Boolean.TRUE.equals(row.get(0, Boolean.class)))
+                .one();
+    }
+
+    @Override
+    public Mono<Boolean> deleteCustomer(Long id) {
+        String sql = """
+                DELETE FROM customer WHERE id = :id
+                """;
+        return databaseClient.sql(sql)
+                .bind("id", id)
+                .fetch()
+                .rowsUpdated()
+                .map(rows -> rows > 0);
+    }
+
+    @Override
+    public Mono<Boolean> existsCustomerById(Long id) {
+        String sql = """
+                SELECT EXISTS(SELECT 1 FROM customer WHERE id = :id)
+                """;
+        return databaseClient.sql(sql)
+                .bind("id", id)
+                .map(row -> Boolean.TRUE.equals(row.get(0, Boolean.class)))
+                .one();
+    }
+
+    @Override
+    public Mono<Long> updateCustomer(CustomerUpdate update) {
+        String sql = UPDATE_SQL[update.changedColumns() | (update.expectedVersion() == null ? 0 : VERSION_CHECK)];
+        if (sql == null) {
+            return Mono.error(new IllegalArgumentException(
+                    "Update for customer [%s] has no columns to set".formatted(update.id())));
+        }
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql).bind("id", update.id());
+        if (update.name() != null) spec = spec.bind("name", update.name());
+        if (update.email() != null) spec = spec.bind("email", update.email());
+        if (update.age() != null) spec = spec.bind("age", update.age());
+        if (update.expectedVersion() != null) spec = spec.bind("version", update.expectedVersion());
+        return spec.fetch().rowsUpdated();
+    }
+
+    static Customer mapCustomer(Readable row) {
+        return new Customer(
+                row.get("id", Long.class),
+                row.get("name", String.class),
+                row.get("email", String.class),
+                row.get("age", Integer.class),
+                row.get("version", Long.class)
+        );
+    }
+
+    // Same shape as the JDBC statements; named parameters let the guard reuse the SET values without binding twice.
+    private static String[] buildUpdateStatements() {
+        String[] statements = new String[VERSION_CHECK << 1];
+        for (int key = 1; key < statements.length; key++) {
+            int columns = key & ~VERSION_CHECK;
+            if (columns == 0) continue;
+            List<String> names = new ArrayList<>(3);
+            if ((columns & CustomerUpdate.NAME) != 0) names.add("name");
+            if ((columns & CustomerUpdate.EMAIL) != 0) names.add("email");
+            if ((columns & CustomerUpdate.AGE) != 0) names.add("age");
+            statements[key] = "UPDATE customer SET %s, version = version + 1 WHERE id = :id%s AND (%s) IS DISTINCT FROM (%s)".formatted(
+                    String.join(", ", names.stream().map(name -> name + " = :" + name).toList()),
+                    (key & VERSION_CHECK) != 0 ? " AND version = :version" : "",
+                    String.join(", ", names),
+                    String.join(", ", names.stream().map(name -> ":" + name).toList()));
+        }
+        return statements;
+    }
+
+}
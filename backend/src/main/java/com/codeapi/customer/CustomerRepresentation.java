@@ -0,0 +1,92 @@
+package com.codeapi.customer;
+
+import com.codeapi.config.ProtobufHttpMessageConverter;
+import com.codeapi.exception.PreconditionFailedException;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.util.MimeTypeUtils;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * The formats a customer is written in (see WebMvcConfig; the reactive stack offers those its codecs can write).
+ * Each has its own entity tag, so a tag taken from one representation never revalidates another: JSON, the
+ * default, keeps the bare version and the binary formats add a suffix. If-Match only compares versions, so it accepts the tag of any of them, on either stack.
+ */
+public enum CustomerRepresentation {
+
+    JSON(MediaType.APPLICATION_JSON, ""),
+    CBOR(MediaType.APPLICATION_CBOR, "-cbor"),
+    SMILE(new MediaType("application", "x-jackson-smile"), "-smile"),
+    PROTOBUF(ProtobufHttpMessageConverter.APPLICATION_PROTOBUF, "-protobuf");
+
+    private final MediaType mediaType;
+    private final String tagSuffix;
+
+    CustomerRepresentation(MediaType mediaType, String tagSuffix) {
+        this.mediaType = mediaType;
+        this.tagSuffix = tagSuffix;
+    }
+
+    // the representation the Accept header prefers, JSON when it is absent, empty when none is acceptable
+    public static Optional<CustomerRepresentation> negotiate(String accept) {
+        return negotiate(accept, EnumSet.allOf(CustomerRepresentation.class));
+    }
+
+    // the same, among the representations a stack can actually write
+    public static Optional<CustomerRepresentation> negotiate(String accept, Set<CustomerRepresentation> available) {
+        if (accept == null || accept.isBlank()) return Optional.of(JSON);
+        List<MediaType> accepted;
+        try {
+            accepted = MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException e) {
+            return Optional.empty();
+        }
+        MimeTypeUtils.sortBySpecificity(accepted);
+        for (MediaType type : accepted) {
+            if (type.getQualityValue() == 0) continue;
+            for (CustomerRepresentation representation : available) {
+                if (type.isCompatibleWith(representation.mediaType)) return Optional.of(representation);
+            }
+        }
+        return Optional.empty();
+    }
+
+    // the version an If-Match header requires, null for none or "*"; it uses strong comparison, so weak or foreign
+    // tags can never match a version
+    public static Long expectedVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.strip().equals("*")) return null;
+        String tag = ifMatch.strip();
+        if (tag.length() > 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+            Long version = version(tag.substring(1, tag.length() - 1));
+            if (version != null) return version;
+        }
+        throw new PreconditionFailedException("If-Match %s does not match the current version".formatted(tag));
+    }
+
+    // the version an entity tag of any representation stands for, or null if it is not one of ours
+    private static Long version(String tag) {
+        for (CustomerRepresentation representation : values()) {
+            if (!representation.tagSuffix.isEmpty() && tag.endsWith(representation.tagSuffix)) {
+                tag = tag.substring(0, tag.length() - representation.tagSuffix.length());
+                break;
+            }
+        }
+        try {
+            return Long.valueOf(tag);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    public MediaType mediaType() {
+        return mediaType;
+    }
+
+    public String eTag(long version) {
+        return version + tagSuffix;
+    }
+}
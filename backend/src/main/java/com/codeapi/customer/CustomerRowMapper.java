@@ -13,7 +13,8 @@ public class CustomerRowMapper implements RowMapper<Customer> {
                 rs.getLong("id"),
                 rs.getString("name"),
                 rs.getString("email"),
-                rs.getInt("age")
+                rs.getInt("age"),
+                rs.getLong("version")
         );
     }
 
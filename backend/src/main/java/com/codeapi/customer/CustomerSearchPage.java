@@ -0,0 +1,8 @@
+package com.codeapi.customer;
+
+import java.util.List;
+
+public record CustomerSearchPage(
+        List<Customer> customers,
+        Integer nextOffset
+) {}
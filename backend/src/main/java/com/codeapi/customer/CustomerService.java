@@ -1,74 +1,353 @@
 package com.codeapi.customer;
 
+import com.codeapi.config.CacheConfig;
 import com.codeapi.exception.DuplicateResourceException;
 import com.codeapi.exception.NotModifiedException;
+import com.codeapi.exception.PreconditionFailedException;
+import com.codeapi.exception.RequestValidationException;
 import com.codeapi.exception.ResourceNotFoundException;
-import org.springframework.beans.factory.annotation.Qualifier;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import static com.codeapi.customer.CustomerBatchResult.Status.*;
 
 @Service
 public class CustomerService {
 
+    private static final JsonFactory JSON = new JsonFactory();
+
     private final CustomerDao customerDao;
+    private final Cache customerCache;
+    private final EmailBloomFilter emailFilter;
+    private final CustomerWriteBehind writeBehind;
+    private final CustomerBatchLoader batchLoader;
+    private final SingleFlight<Long, Customer> customerLoads = new SingleFlight<>();
+    private final SingleFlight<PageKey, CustomerPage> pageLoads = new SingleFlight<>();
+    private final SingleFlight<PageKey, byte[]> pageJsonLoads = new SingleFlight<>();
+
+    @Value("${customer.page.default-limit:50}")
+    private int defaultPageLimit = 50;
+
+    @Value("${customer.page.max-limit:500}")
+    private int maxPageLimit = 500;
+
+    // identical listings started within this window share one query
+    @Value("${customer.page.coalesce-window:20ms}")
+    private Duration pageCoalesceWindow = Duration.ofMillis(20);
+
+    @Value("${customer.search.min-length:3}")
+    private int minSearchLength = 3;
+
+    @Value("${customer.search.max-offset:1000}")
+    private int maxSearchOffset = 1000;
+
+    @Value("${customer.lookup.max-ids:500}")
+    private int maxLookupIds = 500;
+
+    @Value("${customer.batch.max-size:100000}")
+    private int maxBatchSize = 100_000;
 
-    public CustomerService(@Qualifier("jdbc") CustomerDao customerDao) {
+    // the jdbc engine, unless customer.dao.engine selects the (primary) in-memory one;
+    // writeBehind is null unless customer.write-behind.enabled, batchLoader unless customer.batch-loader.enabled
+    public CustomerService(CustomerDao customerDao,
+                           CacheManager cacheManager,
+                           EmailBloomFilter emailFilter,
+                           @Nullable CustomerWriteBehind writeBehind,
+                           @Nullable CustomerBatchLoader batchLoader) {
         this.customerDao = customerDao;
+        this.customerCache = Objects.requireNonNull(cacheManager.getCache(CacheConfig.CUSTOMERS_CACHE));
+        this.emailFilter = emailFilter;
+        this.writeBehind = writeBehind;
+        this.batchLoader = batchLoader;
+    }
+
+
+    public CustomerPage getCustomers(Long after, Integer limit) {
+        return getCustomers(CustomerFilter.NONE, CustomerSort.ID, after == null ? null : String.valueOf(after), limit);
+    }
+
+    // after is the nextCursor of the previous page, issued for the same sort
+    public CustomerPage getCustomers(CustomerFilter filter, CustomerSort sort, String after, Integer limit) {
+        PageKey key = pageKey(filter, sort, after, limit);
+        return pageLoads.run(key, pageCoalesceWindow, () -> {
+            if (filter.isEmpty() && sort.equals(CustomerSort.ID)) {
+                return customerDao.selectCustomersPage(key.after() == null ? null : key.after().id(), key.limit());
+            }
+            return customerDao.selectCustomersPage(filter, sort, key.after(), key.limit());
+        });
+    }
+
+    // the same page serialized as JSON by the DAO, without a Customer or bean introspection per row
+    public byte[] getCustomersJson(CustomerFilter filter, CustomerSort sort, String after, Integer limit) {
+        PageKey key = pageKey(filter, sort, after, limit);
+        return pageJsonLoads.run(key, pageCoalesceWindow, () -> {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try (JsonGenerator generator = JSON.createGenerator(out)) {
+                customerDao.writeCustomersPage(filter, sort, key.after(), key.limit(), CustomerJsonWriter.page(generator));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return out.toByteArray();
+        });
     }
 
+    private PageKey pageKey(CustomerFilter filter, CustomerSort sort, String after, Integer limit) {
+        int pageLimit = limit == null ? defaultPageLimit : limit;
+        if (pageLimit < 1 || pageLimit > maxPageLimit) {
+            throw new RequestValidationException("Limit must be between 1 and %s".formatted(maxPageLimit));
+        }
+        CustomerCursor cursor = after == null ? null : CustomerCursor.decode(after, sort);
+        if (filter.ageMin() != null && filter.ageMax() != null && filter.ageMin() > filter.ageMax()) {
+            throw new RequestValidationException("ageMin must not be greater than ageMax");
+        }
+        return new PageKey(filter, sort, cursor, pageLimit);
+    }
+
+    // ranked results can only be paged by offset, so the depth is capped to keep every page cheap
+    public CustomerSearchPage searchCustomers(String query, Integer offset, Integer limit) {
+        String q = query == null ? "" : query.strip();
+        if (q.length() < minSearchLength) {
+            throw new RequestValidationException("Search query must be at least %s characters".formatted(minSearchLength));
+        }
+        int pageLimit = limit == null ? defaultPageLimit : limit;
+        if (pageLimit < 1 || pageLimit > maxPageLimit) {
+            throw new RequestValidationException("Limit must be between 1 and %s".formatted(maxPageLimit));
+        }
+        int pageOffset = offset == null ? 0 : offset;
+        if (pageOffset < 0 || pageOffset > maxSearchOffset) {
+            throw new RequestValidationException("Offset must be between 0 and %s".formatted(maxSearchOffset));
+        }
+        CustomerSearchPage page = customerDao.searchCustomers(q.toLowerCase(), pageOffset, pageLimit);
+        if (page.nextOffset() != null && page.nextOffset() > maxSearchOffset) {
+            return new CustomerSearchPage(page.customers(), null);
+        }
+        return page;
+    }
 
-    public List<Customer> getAllCustomers() {
-        return customerDao.selectAllCustomers();
+    public void exportCustomers(Consumer<Customer> consumer) {
+        customerDao.streamAllCustomers(consumer);
     }
 
+    public void exportCustomers(CustomerJsonWriter writer) {
+        customerDao.writeAllCustomers(writer);
+    }
+
+    // a pending update is written first, so the version served (the ETag) matches the values next to it
     public Customer selectCustomerById(Long id) {
-        return customerDao.selectCustomerById(id).orElseThrow(
-                () -> new ResourceNotFoundException("Customer with id [%s] not found".formatted(id)));
+        if (writeBehind != null) writeBehind.flush(id);
+        return cachedCustomer(id);
+    }
+
+    // Answers in request order, each id once. Cached customers are served from memory and only the rest are
+    // fetched, in one query; those rows are not cached here, since an update may evict in between.
+    public CustomerLookup selectCustomersByIds(List<Long> ids) {
+        Set<Long> distinct = new LinkedHashSet<>(ids);
+        distinct.remove(null);
+        if (distinct.isEmpty() || distinct.size() > maxLookupIds) {
+            throw new RequestValidationException("Between 1 and %s ids can be requested at once".formatted(maxLookupIds));
+        }
+
+        if (writeBehind != null) writeBehind.flush(distinct);
+        Map<Long, Customer> found = new HashMap<>();
+        List<Long> misses = new ArrayList<>();
+        for (Long id : distinct) {
+            Customer cached = customerCache.get(id, Customer.class);
+            if (cached == null) misses.add(id);
+            else found.put(id, cached);
+        }
+        if (!misses.isEmpty()) {
+            for (Customer customer : customerDao.selectCustomersByIds(misses)) {
+                found.put(customer.getId(), customer);
+            }
+        }
+
+        List<Customer> customers = new ArrayList<>(found.size());
+        List<Long> missing = new ArrayList<>();
+        for (Long id : distinct) {
+            Customer customer = found.get(id);
+            if (customer == null) missing.add(id);
+            else customers.add(customer);
+        }
+        return new CustomerLookup(customers, missing);
     }
 
     public void insertCustomer(CustomerDto dto) {
-        if (customerDao.existPersonWithEmail(dto.email())) {
+        validate(dto.name(), dto.email(), dto.age(), true);
+        String email = dto.email().toLowerCase();
+        if (emailFilter.mightContain(email) && customerDao.existPersonWithEmail(email)) {
             throw new DuplicateResourceException("Email %s is already exist".formatted(dto.email()));
         }
 
-        customerDao.insertCustomer(
-                new Customer(dto.name(), dto.email().toLowerCase(), dto.age())
-        );
+        try {
+            customerDao.insertCustomer(new Customer(dto.name(), email, dto.age()));
+        } catch (DuplicateKeyException e) {
+            throw new DuplicateResourceException("Email %s is already exist".formatted(dto.email()));
+        }
+        emailFilter.put(email);
+    }
+
+    @Transactional
+    public List<CustomerBatchResult> insertCustomers(List<CustomerDto> dtos) {
+        if (dtos.isEmpty() || dtos.size() > maxBatchSize) {
+            throw new RequestValidationException("Batch size must be between 1 and %s".formatted(maxBatchSize));
+        }
+
+        Set<String> candidateEmails = new HashSet<>();
+        for (CustomerDto dto : dtos) {
+            if (dto != null && dto.email() != null && emailFilter.mightContain(dto.email().toLowerCase())) {
+                candidateEmails.add(dto.email().toLowerCase());
+            }
+        }
+        Set<String> existingEmails = candidateEmails.isEmpty() ? Set.of() : customerDao.selectExistingEmails(candidateEmails);
+
+        List<Customer> customers = new ArrayList<>(dtos.size());
+        List<CustomerBatchResult> results = classify(dtos, existingEmails, customers);
+        if (customers.isEmpty()) return results;
+
+        // The filter can miss an email (built from a source that was behind, or registered concurrently). A failed batch
+        // inserts nothing and leaves the transaction usable, so every email of it is checked and the rest inserted again.
+        try {
+            customerDao.insertCustomers(customers);
+        } catch (DuplicateKeyException e) {
+            Set<String> emails = new HashSet<>();
+            customers.forEach(customer -> emails.add(customer.getEmail()));
+            Set<String> registered = new HashSet<>(existingEmails);
+            registered.addAll(customerDao.selectExistingEmails(emails));
+            customers.clear();
+            results = classify(dtos, registered, customers);
+            if (customers.isEmpty()) return results;
+            try {
+                customerDao.insertCustomers(customers);
+            } catch (DuplicateKeyException again) {
+                throw new DuplicateResourceException("Batch contains an email that was registered concurrently");
+            }
+        }
+        customers.forEach(customer -> emailFilter.put(customer.getEmail()));
+        return results;
+    }
+
+    // one result per dto; the ones to create are added to customers
+    private static List<CustomerBatchResult> classify(List<CustomerDto> dtos, Set<String> existingEmails,
+                                                      List<Customer> customers) {
+        List<CustomerBatchResult> results = new ArrayList<>(dtos.size());
+        Set<String> batchEmails = new HashSet<>();
+        for (int i = 0; i < dtos.size(); i++) {
+            CustomerDto dto = dtos.get(i);
+            String violation = dto == null
+                    ? "Name, email and age are required"
+                    : CustomerConstraints.violation(dto.name(), dto.email(), dto.age(), true);
+            if (violation != null) {
+                results.add(new CustomerBatchResult(i, dto == null ? null : dto.email(), INVALID, violation));
+                continue;
+            }
+            String email = dto.email().toLowerCase();
+            if (existingEmails.contains(email) || !batchEmails.add(email)) {
+                results.add(new CustomerBatchResult(i, email, DUPLICATE, "Email %s is already exist".formatted(email)));
+                continue;
+            }
+            customers.add(new Customer(dto.name(), email, dto.age()));
+            results.add(new CustomerBatchResult(i, email, CREATED, null));
+        }
+        return results;
+    }
+
+    public CustomerImportResult importCustomers(Reader reader, CustomerImportFormat format) {
+        try {
+            return customerDao.importCustomers(reader, format);
+        } catch (DataIntegrityViolationException e) {
+            throw new RequestValidationException("Import file is malformed: %s".formatted(e.getMostSpecificCause().getMessage()));
+        } finally {
+            // the merge may have updated any number of cached customers and added unknown emails
+            customerCache.clear();
+            emailFilter.rebuildAsync();
+        }
     }
 
     public void deleteCustomer(Long id) {
-        if (!customerDao.existsCustomerById(id)) {
+        if (!customerDao.deleteCustomer(id)) {
             throw new ResourceNotFoundException("Customer with id [%s] not found".formatted(id));
         }
-        customerDao.deleteCustomer(id);
+        customerCache.evict(id);
     }
 
     public void updateCustomer(Long id, CustomerDto dto) {
-        Customer customer = getCustomer(id);
-        boolean changes = false;
+        updateCustomer(id, dto, null);
+    }
 
-        if (dto.name() != null && !dto.name().equals(customer.getName())) {
-             customer.setName(dto.name());
-             changes = true;
+    public void updateCustomer(Long id, CustomerDto dto, Long expectedVersion) {
+        CustomerUpdate update = new CustomerUpdate(id, dto.name(), dto.email(), dto.age(), expectedVersion);
+        if (update.isEmpty()) throw new NotModifiedException("Nothing to update!");
+        // checked up front for every path: a queued update is acknowledged before the database ever sees it
+        validate(update.name(), update.email(), update.age(), false);
+
+        if (writeBehind != null) {
+            // e-mail changes and If-Match need the database's answer, so only plain name/age changes are queued
+            if (update.email() == null && expectedVersion == null) {
+                // compared with what is already queued, without writing it out
+                Customer current = writeBehind.overlay(cachedCustomer(id));
+                if ((update.name() == null || update.name().equals(current.getName()))
+                        && (update.age() == null || update.age().equals(current.getAge()))) {
+                    throw new NotModifiedException("Nothing to update!");
+                }
+                writeBehind.submit(update);
+                return;
+            }
+            writeBehind.flush(id);
         }
 
-        if (dto.age() != null && !dto.age().equals(customer.getAge())) {
-            customer.setAge(dto.age());
-            changes = true;
+        int updated;
+        try {
+            updated = customerDao.updateCustomer(update);
+        } catch (DuplicateKeyException e) {
+            throw new DuplicateResourceException("Email already exists!");
         }
 
-        if (dto.email() != null && !dto.email().equals(customer.getEmail())) {
-            if (customerDao.existPersonWithEmail(dto.email())) {
-                throw new DuplicateResourceException("Email already exists!");
+        if (updated == 0) {
+            // only the failure path pays for a second round trip to tell the cases apart
+            if (expectedVersion != null) {
+                Customer current = getCustomer(id);
+                if (!expectedVersion.equals(current.getVersion())) {
+                    throw new PreconditionFailedException("Customer with id [%s] has been modified".formatted(id));
+                }
+            } else if (!customerDao.existsCustomerById(id)) {
+                throw new ResourceNotFoundException("Customer with id [%s] not found".formatted(id));
             }
-            customer.setEmail(dto.email());
-            changes = true;
+            throw new NotModifiedException("Nothing to update!");
         }
+        customerCache.evict(id);
+        if (update.email() != null) emailFilter.put(update.email());
+    }
 
-        if (!changes) throw new NotModifiedException("Nothing to update!");
-
-        customerDao.updateCustomer(customer);
+    private Customer cachedCustomer(Long id) {
+        try {
+            return customerCache.get(id, () -> loadCustomer(id));
+        } catch (Cache.ValueRetrievalException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw e;
+        }
     }
 
     private Customer getCustomer(Long id) {
@@ -77,4 +356,21 @@ public class CustomerService {
         );
     }
 
+    // concurrent misses for the same id (and lookups of ids that do not exist, which are never cached) share a query
+    private Customer loadCustomer(Long id) {
+        return customerLoads.run(id, Duration.ZERO, () -> {
+            if (batchLoader == null) return getCustomer(id);
+            return batchLoader.load(id).orElseThrow(
+                    () -> new ResourceNotFoundException("Customer with id [%s] not found".formatted(id))
+            );
+        });
+    }
+
+    private static void validate(String name, String email, Integer age, boolean required) {
+        String violation = CustomerConstraints.violation(name, email, age, required);
+        if (violation != null) throw new RequestValidationException(violation);
+    }
+
+    private record PageKey(CustomerFilter filter, CustomerSort sort, CustomerCursor after, int limit) {}
+
 }
@@ -0,0 +1,34 @@
+package com.codeapi.customer;
+
+import com.codeapi.exception.RequestValidationException;
+
+import java.util.List;
+
+/**
+ * Sort order for customer listings, written as {@code age} or {@code -age} for descending. The id is always
+ * the tie-breaker so keyset pagination stays stable.
+ */
+public record CustomerSort(String column, boolean descending) {
+
+    private static final List<String> COLUMNS = List.of("id", "name", "email", "age");
+
+    public static final CustomerSort ID = new CustomerSort("id", false);
+
+    public CustomerSort {
+        if (!COLUMNS.contains(column)) {
+            throw new RequestValidationException("Sort must be one of %s, optionally prefixed with '-'".formatted(COLUMNS));
+        }
+    }
+
+    public static CustomerSort of(String sort) {
+        if (sort == null || sort.isBlank()) return ID;
+        String value = sort.strip();
+        return value.startsWith("-")
+                ? new CustomerSort(value.substring(1), true)
+                : new CustomerSort(value, false);
+    }
+
+    public boolean isById() {
+        return column.equals("id");
+    }
+}
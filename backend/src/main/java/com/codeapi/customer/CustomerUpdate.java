@@ -0,0 +1,30 @@
+package com.codeapi.customer;
+
+public record CustomerUpdate(
+        Long id,
+        String name,
+        String email,
+        Integer age,
+        Long expectedVersion
+) {
+
+    static final int NAME = 1;
+    static final int EMAIL = 1 << 1;
+    static final int AGE = 1 << 2;
+
+    public CustomerUpdate(Long id, String name, String email, Integer age) {
+        this(id, name, email, age, null);
+    }
+
+    public int changedColumns() {
+        int columns = 0;
+        if (name != null) columns |= NAME;
+        if (email != null) columns |= EMAIL;
+        if (age != null) columns |= AGE;
+        return columns;
+    }
+
+    public boolean isEmpty() {
+        return changedColumns() == 0;
+    }
+}
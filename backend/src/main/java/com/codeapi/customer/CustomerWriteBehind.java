@@ -0,0 +1,219 @@
+package com.codeapi.customer;
+
+import com.codeapi.config.CacheConfig;
+import com.codeapi.exception.ServiceUnavailableException;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Asynchronous write mode for customer updates. An update is acknowledged once queued, and pending updates to the
+ * same customer are merged, so a burst of PUTs costs one row write. A single thread flushes the queue in batches
+ * every flush interval. Reads flush the customers they return first, so the version (and the ETag derived from it)
+ * always belongs to the values served; the write path alone looks through {@link #overlay(Customer)}. The queue is
+ * bounded by distinct customers: when it is full, callers wait up to the offer timeout and are then turned away.
+ * Callers check updates against the table's constraints before submitting them; one the database still rejects is
+ * moved to a dead-letter store rather than dropped.
+ */
+@Component
+@ConditionalOnProperty (name = "customer.write-behind.enabled", havingValue = "true")
+public class CustomerWriteBehind implements InitializingBean, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(CustomerWriteBehind.class);
+
+    private final CustomerDao customerDao;
+    private final Cache customerCache;
+    private final Map<Long, CustomerUpdate> pending = new ConcurrentHashMap<>();
+    private final Queue<CustomerUpdate> deadLetters = new ConcurrentLinkedQueue<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final DistributionSummary flushedBatches;
+    private ScheduledExecutorService flusher;
+
+    @Value("${customer.write-behind.capacity:10000}")
+    private int capacity = 10_000;
+
+    @Value("${customer.write-behind.flush-interval:100ms}")
+    private Duration flushInterval = Duration.ofMillis(100);
+
+    @Value("${customer.write-behind.batch-size:500}")
+    private int batchSize = 500;
+
+    @Value("${customer.write-behind.offer-timeout:50ms}")
+    private Duration offerTimeout = Duration.ofMillis(50);
+
+    public CustomerWriteBehind(CustomerDao customerDao, CacheManager cacheManager, MeterRegistry meterRegistry) {
+        this.customerDao = customerDao;
+        this.customerCache = Objects.requireNonNull(cacheManager.getCache(CacheConfig.CUSTOMERS_CACHE));
+        Gauge.builder("customer.updates.pending", pending, Map::size)
+             .description("Acknowledged customer updates not yet written to the database")
+             .register(meterRegistry);
+        Gauge.builder("customer.updates.rejected", deadLetters, Queue::size)
+             .description("Acknowledged customer updates the database rejected, kept in the dead-letter store")
+             .register(meterRegistry);
+        this.flushedBatches = DistributionSummary.builder("customer.updates.flushed")
+                                                 .description("Customer updates written per write-behind batch")
+                                                 .register(meterRegistry);
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        flusher = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("customer-write-behind").daemon().factory());
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushInterval.toMillis(), flushInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    public void submit(CustomerUpdate update) {
+        lock.lock();
+        try {
+            long nanos = offerTimeout.toNanos();
+            while (pending.size() >= capacity && !pending.containsKey(update.id())) {
+                if (nanos <= 0) {
+                    throw new ServiceUnavailableException("Too many pending customer updates, retry later");
+                }
+                nanos = notFull.awaitNanos(nanos);
+            }
+            pending.merge(update.id(), update, CustomerWriteBehind::merge);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException("Interrupted while queueing customer update");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Customer overlay(Customer customer) {
+        if (pending.isEmpty()) return customer;
+        CustomerUpdate update = pending.get(customer.getId());
+        if (update == null) return customer;
+        return new Customer(customer.getId(),
+                            update.name() == null ? customer.getName() : update.name(),
+                            update.email() == null ? customer.getEmail() : update.email(),
+                            update.age() == null ? customer.getAge() : update.age(),
+                            customer.getVersion());
+    }
+
+    public int pendingCount() {
+        return pending.size();
+    }
+
+    public List<CustomerUpdate> deadLetters() {
+        return List.copyOf(deadLetters);
+    }
+
+    // lets a synchronous write to this customer land after, not before, the queued one
+    public void flush(Long id) {
+        flush(List.of(id));
+    }
+
+    // writes whatever is pending for these customers, in one batch
+    public void flush(Collection<Long> ids) {
+        if (pending.isEmpty() || ids.stream().noneMatch(pending::containsKey)) return;
+        flushLock.lock();
+        try {
+            List<CustomerUpdate> updates = new ArrayList<>();
+            for (Long id : ids) {
+                CustomerUpdate update = pending.get(id);
+                if (update != null) updates.add(update);
+            }
+            if (!updates.isEmpty()) write(updates);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    public void flush() {
+        flushLock.lock();
+        try {
+            List<CustomerUpdate> updates = new ArrayList<>(pending.values());
+            for (int from = 0; from < updates.size(); from += batchSize) {
+                write(updates.subList(from, Math.min(from + batchSize, updates.size())));
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (DataAccessException e) {
+            log.warn("Flushing {} pending customer updates failed, retrying in {}", pending.size(), flushInterval, e);
+        }
+    }
+
+    // Updates stay pending (and visible) until written. A transient failure keeps the whole batch for the next
+    // round; a row the database rejects outright goes to the dead-letter store so it cannot block the queue forever.
+    private void write(List<CustomerUpdate> batch) {
+        try {
+            customerDao.updateCustomers(batch);
+        } catch (DataIntegrityViolationException e) {
+            for (CustomerUpdate update : batch) {
+                try {
+                    customerDao.updateCustomer(update);
+                } catch (DataIntegrityViolationException rejected) {
+                    deadLetters.add(update);
+                    log.error("Acknowledged update for customer [{}] was rejected, moved to the dead-letter store: {}",
+                              update.id(), rejected.getMostSpecificCause().getMessage());
+                }
+            }
+        }
+        flushedBatches.record(batch.size());
+        lock.lock();
+        try {
+            for (CustomerUpdate update : batch) {
+                customerCache.evict(update.id());
+                pending.remove(update.id(), update);
+            }
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static CustomerUpdate merge(CustomerUpdate older, CustomerUpdate newer) {
+        return new CustomerUpdate(older.id(),
+                                  newer.name() == null ? older.name() : newer.name(),
+                                  newer.email() == null ? older.email() : newer.email(),
+                                  newer.age() == null ? older.age() : newer.age());
+    }
+
+    @Override
+    public void destroy() {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(flushInterval.toMillis() * 10, TimeUnit.MILLISECONDS);
+            flush();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (DataAccessException e) {
+            log.error("Shutting down with {} customer updates not written", pending.size(), e);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.codeapi.customer;
+
+import com.codeapi.config.ReplicaRoutingDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bloom filter over all customer emails. A negative answer is definite, so callers may skip the
+ * existence query; a positive answer (or a filter that is not built yet) still needs the database.
+ */
+@Component
+public class EmailBloomFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(EmailBloomFilter.class);
+
+    private final CustomerDao customerDao;
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+
+    @Value("${customer.email-filter.expected-insertions:1000000}")
+    private long expectedInsertions = 1_000_000;
+
+    @Value("${customer.email-filter.false-positive-probability:0.01}")
+    private double falsePositiveProbability = 0.01;
+
+    private volatile Bits current;
+    private volatile Bits building;
+
+    public EmailBloomFilter(@Qualifier("jdbc") CustomerDao customerDao) {
+        this.customerDao = customerDao;
+    }
+
+    public boolean mightContain(String email) {
+        Bits bits = current;
+        return bits == null || bits.mightContain(email);
+    }
+
+    public void put(String email) {
+        // read the filter under construction first: rebuild() publishes it as current before clearing it
+        Bits next = building;
+        if (next != null) next.put(email);
+        Bits bits = current;
+        if (bits != null && bits != next) bits.put(email);
+    }
+
+    public boolean isReady() {
+        return current != null;
+    }
+
+    @EventListener (ApplicationReadyEvent.class)
+    public void rebuildAsync() {
+        Thread.ofVirtual().name("email-bloom-filter").start(this::rebuild);
+    }
+
+    public void rebuild() {
+        if (!rebuilding.compareAndSet(false, true)) return;
+        try {
+            Bits next = new Bits(expectedInsertions, falsePositiveProbability);
+            building = next;
+            long[] count = {0};
+            // a lagging replica would leave out recent emails, which the filter would then call definitely new
+            ReplicaRoutingDataSource.onPrimary(() -> {
+                customerDao.streamAllCustomers(customer -> {
+                    next.put(customer.getEmail());
+                    count[0]++;
+                });
+                return null;
+            });
+            current = next;
+            log.info("Email bloom filter built from {} customers", count[0]);
+        } catch (RuntimeException e) {
+            log.warn("Email bloom filter rebuild failed, uniqueness checks fall back to the database", e);
+        } finally {
+            building = null;
+            rebuilding.set(false);
+        }
+    }
+
+    private static final class Bits {
+
+        private final AtomicLongArray words;
+        private final long size;
+        private final int hashFunctions;
+
+        Bits(long expectedInsertions, double falsePositiveProbability) {
+            long n = Math.max(1, expectedInsertions);
+            long bits = (long) (-n * Math.log(falsePositiveProbability) / (Math.log(2) * Math.log(2)));
+            this.words = new AtomicLongArray((int) Math.min(Integer.MAX_VALUE, (bits + 63) >>> 6));
+            this.size = (long) words.length() << 6;
+            this.hashFunctions = Math.max(1, (int) Math.round((double) size / n * Math.log(2)));
+        }
+
+        void put(String email) {
+            long hash = hash(email);
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 1; i <= hashFunctions; i++) {
+                long index = ((h1 + (long) i * h2) & Long.MAX_VALUE) % size;
+                int word = (int) (index >>> 6);
+                long mask = 1L << index;
+                long value;
+                while (((value = words.get(word)) & mask) == 0) {
+                    if (words.compareAndSet(word, value, value | mask)) break;
+                }
+            }
+        }
+
+        boolean mightContain(String email) {
+            long hash = hash(email);
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 1; i <= hashFunctions; i++) {
+                long index = ((h1 + (long) i * h2) & Long.MAX_VALUE) % size;
+                if ((words.get((int) (index >>> 6)) & (1L << index)) == 0) return false;
+            }
+            return true;
+        }
+
+        // 64-bit FNV-1a followed by the murmur3 finalizer to spread the bits
+        private static long hash(String value) {
+            long hash = 0xcbf29ce484222325L;
+            for (int i = 0; i < value.length(); i++) {
+                hash ^= value.charAt(i);
+                hash *= 0x100000001b3L;
+            }
+            hash ^= hash >>> 33;
+            hash *= 0xff51afd7ed558ccdL;
+            hash ^= hash >>> 33;
+            hash *= 0xc4ceb9fe1a85ec53L;
+            hash ^= hash >>> 33;
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.codeapi.customer;
+
+import com.codeapi.exception.RequestValidationException;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerCodecConfigurer;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.EnumSet;
+import java.util.Optional;
+import java.util.Set;
+
+@RestController
+@Profile("reactive")
+@RequestMapping ("api/v1/customers")
+public class ReactiveCustomerController {
+
+    private static final Set<String> PAGE_PARAMS = Set.of("after", "limit");
+
+    private final ReactiveCustomerService customerService;
+    private final Set<CustomerRepresentation> representations = EnumSet.noneOf(CustomerRepresentation.class);
+
+    public ReactiveCustomerController(ReactiveCustomerService customerService, ServerCodecConfigurer codecs) {
+        this.customerService = customerService;
+        // only what a registered codec can write is offered; the servlet stack's protobuf converter has no counterpart
+        ResolvableType type = ResolvableType.forClass(Customer.class);
+        for (CustomerRepresentation representation : CustomerRepresentation.values()) {
+            if (codecs.getWriters().stream().anyMatch(writer -> writer.canWrite(type, representation.mediaType()))) {
+                representations.add(representation);
+            }
+        }
+    }
+
+
+    // Filters, sorting, ?ids= lookups and search are only implemented by the servlet stack. They are refused here
+    // rather than ignored, so the same URL never answers with different data depending on the profile.
+    @GetMapping
+    public Mono<CustomerPage> getAllCustomer(@RequestParam (value = "after", required = false) Long after,
+                                             @RequestParam (value = "limit", required = false) Integer limit,
+                                             @RequestParam MultiValueMap<String, String> params) {
+        for (String name : params.keySet()) {
+            if (!PAGE_PARAMS.contains(name)) return unsupported("Parameter " + name);
+        }
+        return customerService.getCustomers(after, limit);
+    }
+
+    @GetMapping ("search")
+    public Mono<CustomerSearchPage> searchCustomers() {
+        return unsupported("Search");
+    }
+
+    @GetMapping (value = "export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Customer> exportCustomers() {
+        return customerService.exportCustomers();
+    }
+
+    // as on the servlet stack, the format is pinned here so that the entity tag names the representation written
+    @GetMapping ("{id}")
+    public Mono<ResponseEntity<Customer>> selectCustomerById(@PathVariable ("id") Long id,
+                                                             @RequestHeader (value = HttpHeaders.ACCEPT, required = false) String accept) {
+        Optional<CustomerRepresentation> representation = CustomerRepresentation.negotiate(accept, representations);
+        return customerService.selectCustomerById(id)
+                .map(customer -> representation
+                        .map(r -> ResponseEntity.ok().contentType(r.mediaType()).eTag(r.eTag(customer.getVersion())).body(customer))
+                        // nothing acceptable: left to the codecs to refuse
+                        .orElseGet(() -> ResponseEntity.ok().body(customer)));
+    }
+
+    @PostMapping
+    public Mono<Void> insertCustomer(@RequestBody CustomerDto dto) {
+        return customerService.insertCustomer(dto);
+    }
+
+    @DeleteMapping ("{id}")
+    public Mono<Void> deleteCustomer(@PathVariable ("id") Long id) {
+        return customerService.deleteCustomer(id);
+    }
+
+    @PutMapping ("{id}")
+    public Mono<Void> updateCustomer(@PathVariable ("id") Long id,
+                                     @RequestHeader (value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                     @RequestBody CustomerDto dto) {
+        return customerService.updateCustomer(id, dto, CustomerRepresentation.expectedVersion(ifMatch));
+    }
+
+    private static <T> Mono<T> unsupported(String feature) {
+        return Mono.error(new RequestValidationException("%s is not supported by the reactive stack".formatted(feature)));
+    }
+
+}
@@ -0,0 +1,17 @@
+package com.codeapi.customer;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public interface ReactiveCustomerDao {
+
+    Mono<CustomerPage> selectCustomersPage(Long after, int limit);
+    Flux<Customer> streamAllCustomers();
+    Mono<Customer> selectCustomerById(Long id);
+    Mono<Void> insertCustomer(Customer customer);
+    Mono<Boolean> existPersonWithEmail(String email);
+    Mono<Boolean> deleteCustomer(Long id);
+    Mono<Boolean> existsCustomerById(Long id);
+    Mono<Long> updateCustomer(CustomerUpdate update);
+
+}
@@ -0,0 +1,101 @@
+package com.codeapi.customer;
+
+import com.codeapi.exception.DuplicateResourceException;
+import com.codeapi.exception.NotModifiedException;
+import com.codeapi.exception.PreconditionFailedException;
+import com.codeapi.exception.RequestValidationException;
+import com.codeapi.exception.ResourceNotFoundException;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@Service
+@Profile("reactive")
+public class ReactiveCustomerService {
+
+    private final ReactiveCustomerDao customerDao;
+
+    @Value("${customer.page.default-limit:50}")
+    private int defaultPageLimit = 50;
+
+    @Value("${customer.page.max-limit:500}")
+    private int maxPageLimit = 500;
+
+    public ReactiveCustomerService(@Qualifier("r2dbc") ReactiveCustomerDao customerDao) {
+        this.customerDao = customerDao;
+    }
+
+
+    public Mono<CustomerPage> getCustomers(Long after, Integer limit) {
+        int pageLimit = limit == null ? defaultPageLimit : limit;
+        if (pageLimit < 1 || pageLimit > maxPageLimit) {
+            return Mono.error(new RequestValidationException("Limit must be between 1 and %s".formatted(maxPageLimit)));
+        }
+        if (after != null && after < 0) {
+            return Mono.error(new RequestValidationException("Cursor must not be negative"));
+        }
+        return customerDao.selectCustomersPage(after, pageLimit);
+    }
+
+    public Flux<Customer> exportCustomers() {
+        return customerDao.streamAllCustomers();
+    }
+
+    public Mono<Customer> selectCustomerById(Long id) {
+        return customerDao.selectCustomerById(id)
+                .switchIfEmpty(Mono.error(() -> notFound(id)));
+    }
+
+    public Mono<Void> insertCustomer(CustomerDto dto) {
+        String violation = CustomerConstraints.violation(dto.name(), dto.email(), dto.age(), true);
+        if (violation != null) return Mono.error(new RequestValidationException(violation));
+
+        String email = dto.email().toLowerCase();
+        return customerDao.existPersonWithEmail(email)
+                .flatMap(exists -> exists
+                        ? Mono.<Void>error(() -> duplicate(dto.email()))
+                        : customerDao.insertCustomer(new Customer(dto.name(), email, dto.age())))
+                .onErrorMap(DuplicateKeyException.class, e -> duplicate(dto.email()));
+    }
+
+    public Mono<Void> deleteCustomer(Long id) {
+        return customerDao.deleteCustomer(id)
+                .flatMap(deleted -> deleted ? Mono.<Void>empty() : Mono.error(notFound(id)));
+    }
+
+    public Mono<Void> updateCustomer(Long id, CustomerDto dto, Long expectedVersion) {
+        CustomerUpdate update = new CustomerUpdate(id, dto.name(), dto.email(), dto.age(), expectedVersion);
+        if (update.isEmpty()) return Mono.error(new NotModifiedException("Nothing to update!"));
+        String violation = CustomerConstraints.violation(update.name(), update.email(), update.age(), false);
+        if (violation != null) return Mono.error(new RequestValidationException(violation));
+
+        return customerDao.updateCustomer(update)
+                .onErrorMap(DuplicateKeyException.class, e -> new DuplicateResourceException("Email already exists!"))
+                .flatMap(updated -> updated > 0 ? Mono.<Void>empty() : notUpdated(id, expectedVersion));
+    }
+
+    // only the failure path pays for a second round trip to tell the cases apart
+    private Mono<Void> notUpdated(Long id, Long expectedVersion) {
+        if (expectedVersion == null) {
+            return customerDao.existsCustomerById(id).flatMap(exists -> Mono.error(exists
+                    ? new NotModifiedException("Nothing to update!")
+                    : notFound(id)));
+        }
+        return selectCustomerById(id).flatMap(current -> Mono.error(expectedVersion.equals(current.getVersion())
+                ? new NotModifiedException("Nothing to update!")
+                : new PreconditionFailedException("Customer with id [%s] has been modified".formatted(id))));
+    }
+
+    private static DuplicateResourceException duplicate(String email) {
+        return new DuplicateResourceException("Email %s is already exist".formatted(email));
+    }
+
+    private static ResourceNotFoundException notFound(Long id) {
+        return new ResourceNotFoundException("Customer with id [%s] not found".formatted(id));
+    }
+
+}
@@ -0,0 +1,58 @@
+package com.codeapi.customer;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent calls for the same key: the first caller runs the call and everyone arriving while it is in
+ * flight waits for and shares its outcome, result or exception alike. A successful result can additionally be
+ * handed out for a short window after it completed; failures are never reused.
+ */
+final class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, Call<V>> calls = new ConcurrentHashMap<>();
+
+    V run(K key, Duration reuseFor, Supplier<V> supplier) {
+        Call<V> call = new Call<>();
+        Call<V> running = calls.putIfAbsent(key, call);
+        if (running != null) return running.join();
+
+        boolean succeeded = false;
+        try {
+            V value = supplier.get();
+            call.complete(value);
+            succeeded = true;
+            return value;
+        } catch (RuntimeException | Error e) {
+            call.completeExceptionally(e);
+            throw e;
+        } finally {
+            if (succeeded && reuseFor.isPositive()) {
+                CompletableFuture.delayedExecutor(reuseFor.toNanos(), TimeUnit.NANOSECONDS)
+                                 .execute(() -> calls.remove(key, call));
+            } else {
+                calls.remove(key, call);
+            }
+        }
+    }
+
+    private static final class Call<V> extends CompletableFuture<V> {
+
+        @Override
+        public V join() {
+            try {
+                return super.join();
+            } catch (CompletionException e) {
+                // followers see the leader's exception as if they had made the call themselves
+                if (e.getCause() instanceof RuntimeException cause) throw cause;
+                if (e.getCause() instanceof Error cause) throw cause;
+                throw e;
+            }
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.codeapi.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(code = HttpStatus.BAD_REQUEST)
+public class RequestValidationException extends RuntimeException {
+
+    public RequestValidationException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,9 @@
+-- (key, id) indexes back both the filters and the keyset pagination of the sorted listings
+CREATE INDEX customer_age_id_idx ON customer (age, id);
+CREATE INDEX customer_email_id_idx ON customer (email, id);
+
+-- names filter and sort case-insensitively in byte order: the C collation lets the same index
+-- serve LIKE 'prefix%', ORDER BY and the keyset comparison
+CREATE INDEX customer_lower_name_id_idx ON customer ((lower(name) COLLATE "C"), id);
+
+CREATE INDEX customer_email_domain_idx ON customer (split_part(email, '@', 2), id);
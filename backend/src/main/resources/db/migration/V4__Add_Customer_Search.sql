@@ -0,0 +1,9 @@
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+-- whole words (names, full e-mail addresses) through full-text search
+ALTER TABLE customer ADD COLUMN search_vector TSVECTOR
+    GENERATED ALWAYS AS (to_tsvector('simple', name || ' ' || email)) STORED;
+CREATE INDEX customer_search_vector_idx ON customer USING GIN (search_vector);
+
+-- partial and misspelled fragments through trigram word similarity
+CREATE INDEX customer_search_trgm_idx ON customer USING GIN ((name || ' ' || email) gin_trgm_ops);
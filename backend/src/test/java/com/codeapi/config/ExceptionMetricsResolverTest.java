@@ -0,0 +1,41 @@
+package com.codeapi.config;
+
+import com.codeapi.exception.NotModifiedException;
+import com.codeapi.exception.ResourceNotFoundException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ExceptionMetricsResolverTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ExceptionMetricsResolver underTest = new ExceptionMetricsResolver(meterRegistry);
+
+    @Test
+    void countsEachExceptionTypeSeparately() {
+        resolve(new ResourceNotFoundException("missing"));
+        resolve(new ResourceNotFoundException("missing"));
+        resolve(new NotModifiedException("same"));
+
+        assertThat(count("ResourceNotFoundException")).isEqualTo(2);
+        assertThat(count("NotModifiedException")).isEqualTo(1);
+        assertThat(count("DuplicateResourceException")).isZero();
+    }
+
+    @Test
+    void leavesResolutionToTheNextResolver() {
+        assertThat(resolve(new IllegalStateException("boom"))).isNull();
+        assertThat(count("IllegalStateException")).isEqualTo(1);
+    }
+
+    private Object resolve(Exception exception) {
+        return underTest.resolveException(new MockHttpServletRequest(), new MockHttpServletResponse(), null, exception);
+    }
+
+    private double count(String exception) {
+        return meterRegistry.get("customer.exceptions").tag("exception", exception).counter().count();
+    }
+}
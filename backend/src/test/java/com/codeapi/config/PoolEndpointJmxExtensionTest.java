@@ -0,0 +1,30 @@
+package com.codeapi.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+
+import static org.assertj.core.api.Assertions.*;
+
+class PoolEndpointJmxExtensionTest {
+
+    private final HikariDataSource dataSource = new HikariDataSource();
+    private final PoolEndpointJmxExtension underTest = new PoolEndpointJmxExtension(dataSource, new PoolEndpoint(dataSource));
+
+    @Test
+    void resizeGrowsAndShrinksPool() {
+        dataSource.setMaximumPoolSize(10);
+        dataSource.setMinimumIdle(10);
+
+        assertThat(underTest.resize(30, 20)).extracting(PoolEndpoint.PoolStatus::maximumPoolSize, PoolEndpoint.PoolStatus::minimumIdle)
+                                            .containsExactly(30, 20);
+        assertThat(underTest.resize(5, null)).extracting(PoolEndpoint.PoolStatus::maximumPoolSize, PoolEndpoint.PoolStatus::minimumIdle)
+                                             .containsExactly(5, 5);
+    }
+
+    @Test
+    void willThrowWhenMinimumIdleExceedsMaximum() {
+        assertThatThrownBy(() -> underTest.resize(5, 6)).isInstanceOf(InvalidEndpointRequestException.class);
+        assertThatThrownBy(() -> underTest.resize(0, null)).isInstanceOf(InvalidEndpointRequestException.class);
+    }
+}
@@ -0,0 +1,61 @@
+package com.codeapi.config;
+
+import com.codeapi.customer.Customer;
+import com.codeapi.customer.CustomerDto;
+import com.codeapi.customer.CustomerPage;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.protobuf.ProtobufFactory;
+import com.fasterxml.jackson.dataformat.protobuf.schema.ProtobufSchemaLoader;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.mock.http.MockHttpInputMessage;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import java.io.InputStream;
+import java.util.List;
+
+import static com.codeapi.config.ProtobufHttpMessageConverter.APPLICATION_PROTOBUF;
+import static org.assertj.core.api.Assertions.*;
+
+class ProtobufHttpMessageConverterTest {
+
+    private final ProtobufHttpMessageConverter underTest;
+
+    ProtobufHttpMessageConverterTest() throws Exception {
+        try (InputStream proto = new ClassPathResource("proto/customer.proto").getInputStream()) {
+            underTest = new ProtobufHttpMessageConverter(new ObjectMapper(new ProtobufFactory()),
+                                                         ProtobufSchemaLoader.std.loadNative(proto, false));
+        }
+    }
+
+    @Test
+    void writesMessagesByFieldNumber() throws Exception {
+        MockHttpOutputMessage out = new MockHttpOutputMessage();
+
+        underTest.write(new Customer(1L, "A", "a@b", 30, 2L), APPLICATION_PROTOBUF, out);
+
+        // field 1 varint 1, field 2 "A", field 3 "a@b", field 4 varint 30, field 5 varint 2
+        assertThat(out.getBodyAsBytes()).containsExactly(
+                0x08, 1, 0x12, 1, 'A', 0x1a, 3, 'a', '@', 'b', 0x20, 30, 0x28, 2);
+    }
+
+    @Test
+    void roundTripsPage() throws Exception {
+        CustomerPage page = new CustomerPage(List.of(new Customer(1L, "Test", "test@test.com", 19, 0L),
+                                                     new Customer(2L, "Other", "other@test.com", 40, 3L)), null);
+        MockHttpOutputMessage out = new MockHttpOutputMessage();
+
+        underTest.write(page, APPLICATION_PROTOBUF, out);
+        Object read = underTest.read(CustomerPage.class, new MockHttpInputMessage(out.getBodyAsBytes()));
+
+        assertThat(read).usingRecursiveComparison().isEqualTo(page);
+    }
+
+    @Test
+    void supportsOnlyTypesDeclaredInSchema() {
+        assertThat(underTest.canRead(CustomerDto.class, APPLICATION_PROTOBUF)).isTrue();
+        assertThat(underTest.canWrite(CustomerPage.class, APPLICATION_PROTOBUF)).isTrue();
+        assertThat(underTest.canRead(List.class, APPLICATION_PROTOBUF)).isFalse();
+        assertThat(underTest.canWrite(List.class, APPLICATION_PROTOBUF)).isFalse();
+    }
+}
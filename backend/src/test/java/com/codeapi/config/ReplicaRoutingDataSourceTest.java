@@ -0,0 +1,75 @@
+package com.codeapi.config;
+
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ReplicaRoutingDataSourceTest {
+
+    private final Connection primaryConnection = mock(Connection.class);
+    private final Connection replicaConnection = mock(Connection.class);
+    private final DataSource primary = mock(DataSource.class);
+    private final DataSource replica = mock(DataSource.class);
+    private final ReplicaRoutingDataSource underTest = new ReplicaRoutingDataSource(primary, List.of(replica), Duration.ofSeconds(5));
+
+    ReplicaRoutingDataSourceTest() throws SQLException {
+        when(primary.getConnection()).thenReturn(primaryConnection);
+        lenient().when(replica.getConnection()).thenReturn(replicaConnection);
+        underTest.afterPropertiesSet();
+    }
+
+    @Test
+    void writesUseThePrimary() throws SQLException {
+        underTest.replicas().get(0).lagSeconds = 0;
+
+        assertThat(underTest.getConnection()).isSameAs(primaryConnection);
+    }
+
+    @Test
+    void readsUseAReplicaWithinTheLagBound() throws SQLException {
+        underTest.replicas().get(0).lagSeconds = 1.5;
+
+        assertThat(read()).isSameAs(replicaConnection);
+        assertThat(ReplicaRoutingDataSource.onPrimary(this::read))
+                .isSameAs(primaryConnection);
+    }
+
+    @Test
+    void readsFallBackToThePrimaryWhenReplicaLagsOrIsUnprobed() throws SQLException {
+        assertThat(read()).isSameAs(primaryConnection);
+
+        underTest.replicas().get(0).lagSeconds = 6;
+        assertThat(read()).isSameAs(primaryConnection);
+    }
+
+    @Test
+    void readsFallBackToThePrimaryWhenReplicaRefusesConnection() throws SQLException {
+        underTest.replicas().get(0).lagSeconds = 0;
+        when(replica.getConnection()).thenThrow(new SQLTransientConnectionException("replica down"));
+
+        assertThat(read()).isSameAs(primaryConnection);
+        assertThat(underTest.replicas().get(0).isUsable(Duration.ofSeconds(5))).isFalse();
+    }
+
+    @Test
+    void probeMarksUnreachableReplica() throws SQLException {
+        underTest.replicas().get(0).lagSeconds = 0;
+        when(replica.getConnection()).thenThrow(new SQLTransientConnectionException("replica down"));
+
+        underTest.probe();
+
+        assertThat(underTest.replicas().get(0).lagSeconds).isNaN();
+    }
+
+    private Connection read() throws SQLException {
+        return ReplicaRoutingDataSource.onReplica(underTest::getConnection);
+    }
+}
@@ -0,0 +1,60 @@
+package com.codeapi.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SqlStatisticsTest {
+
+    private final SqlStatistics underTest = new SqlStatistics();
+
+    @Test
+    void aggregatesByStatementAndOrdersByTotalTime() {
+        String select = """
+                SELECT * FROM customer
+                WHERE id = ?
+                """;
+        underTest.record(select, millis(2), millis(1), 1, 1);
+        underTest.record(select, millis(4), millis(1), 1, 1);
+        underTest.record("DELETE FROM customer WHERE id = ?", millis(1), 0, 1, 1);
+
+        var top = underTest.top(10);
+
+        assertThat(top).hasSize(2);
+        assertThat(top.get(0).sql()).isEqualTo("SELECT * FROM customer WHERE id = ?");
+        assertThat(top.get(0).calls()).isEqualTo(2);
+        assertThat(top.get(0).rows()).isEqualTo(2);
+        assertThat(top.get(0).totalMillis()).isEqualTo(8.0);
+        assertThat(top.get(0).meanMillis()).isEqualTo(4.0);
+        assertThat(top.get(0).maxMillis()).isEqualTo(5.0);
+        assertThat(top.get(0).fetchMillis()).isEqualTo(2.0);
+        assertThat(underTest.top(1)).hasSize(1);
+    }
+
+    @Test
+    void foldsStatementsPastTheCapIntoOneBucket() {
+        ReflectionTestUtils.setField(underTest, "maxStatements", 2);
+
+        underTest.record("SELECT 1", 0, 0, 1, 0);
+        underTest.record("SELECT 2", 0, 0, 1, 0);
+        underTest.record("SELECT 3", 0, 0, 1, 0);
+        underTest.record("SELECT 4", 0, 0, 1, 0);
+
+        assertThat(underTest.top(10)).extracting(SqlStatistics.StatementSummary::sql)
+                                     .containsExactlyInAnyOrder("SELECT 1", "SELECT 2", "<other statements>");
+    }
+
+    @Test
+    void reset() {
+        underTest.record("SELECT 1", 0, 0, 1, 0);
+        underTest.reset();
+        assertThat(underTest.top(10)).isEmpty();
+    }
+
+    private static long millis(long millis) {
+        return TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+}
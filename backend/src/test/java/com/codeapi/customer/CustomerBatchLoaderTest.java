@@ -0,0 +1,100 @@
+package com.codeapi.customer;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+class CustomerBatchLoaderTest {
+
+    private final CustomerInMemoryDataAccessService customerDao = spy(new CustomerInMemoryDataAccessService(null));
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CustomerBatchLoader underTest = new CustomerBatchLoader(customerDao, meterRegistry);
+
+    @AfterEach
+    void tearDown() {
+        underTest.destroy();
+    }
+
+    @Test
+    void concurrentLookupsOfDifferentIdsShareOneQuery() throws Exception {
+        for (int i = 0; i < 20; i++) {
+            customerDao.insertCustomer(new Customer("Test " + i, "user" + i + "@test.com", 20));
+        }
+        start(Duration.ofMinutes(1), 25);
+
+        // a full batch goes out at once, so the long window is never waited for
+        List<Optional<Customer>> results = loadConcurrently(25);
+
+        for (int i = 0; i < 25; i++) {
+            long id = i + 1;
+            assertThat(results.get(i)).isEqualTo(id <= 20 ? customerDao.selectCustomerById(id) : Optional.empty());
+        }
+        verify(customerDao, times(1)).selectCustomersByIds(anyCollection());
+        DistributionSummary batchSizes = meterRegistry.get("customer.lookups.batch.size").summary();
+        assertThat(batchSizes.count()).isEqualTo(1);
+        assertThat(batchSizes.max()).isEqualTo(25);
+    }
+
+    @Test
+    void windowSendsPartialBatch() {
+        customerDao.insertCustomer(new Customer("Alex", "alex@test.com", 30));
+        start(Duration.ofMillis(5), 100);
+
+        assertThat(underTest.load(1L)).get().extracting(Customer::getName).isEqualTo("Alex");
+        assertThat(underTest.load(2L)).isEmpty();
+        verify(customerDao, times(2)).selectCustomersByIds(anyCollection());
+    }
+
+    @Test
+    void failedQueryFailsEveryCallerOfTheBatch() throws Exception {
+        doThrow(new QueryTimeoutException("timeout")).when(customerDao).selectCustomersByIds(anyCollection());
+        start(Duration.ofMinutes(1), 3);
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<Optional<Customer>>> futures = new ArrayList<>();
+            for (long id = 1; id <= 3; id++) {
+                long lookup = id;
+                futures.add(executor.submit(() -> underTest.load(lookup)));
+            }
+            for (Future<Optional<Customer>> future : futures) {
+                assertThatThrownBy(future::get).isInstanceOf(ExecutionException.class)
+                                               .hasCauseInstanceOf(QueryTimeoutException.class);
+            }
+        }
+    }
+
+    private void start(Duration window, int maxSize) {
+        ReflectionTestUtils.setField(underTest, "window", window);
+        ReflectionTestUtils.setField(underTest, "maxSize", maxSize);
+        underTest.afterPropertiesSet();
+    }
+
+    private List<Optional<Customer>> loadConcurrently(int ids) throws Exception {
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<Optional<Customer>>> futures = new ArrayList<>();
+            for (long id = 1; id <= ids; id++) {
+                long lookup = id;
+                futures.add(executor.submit(() -> underTest.load(lookup)));
+            }
+            List<Optional<Customer>> results = new ArrayList<>();
+            for (Future<Optional<Customer>> future : futures) results.add(future.get());
+            return results;
+        }
+    }
+}
@@ -0,0 +1,346 @@
+package com.codeapi.customer;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.StringReader;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class CustomerInMemoryDataAccessServiceTest {
+
+    private final CustomerInMemoryDataAccessService underTest = new CustomerInMemoryDataAccessService(null);
+
+    @Test
+    void insertAndSelectCustomer() {
+        underTest.insertCustomer(new Customer("Alex", "alex@test.com", 30));
+
+        Customer customer = underTest.selectCustomerById(1L).orElseThrow();
+        assertThat(customer).isEqualTo(new Customer(1L, "Alex", "alex@test.com", 30));
+        assertThat(customer.getVersion()).isZero();
+        assertThat(underTest.existPersonWithEmail("alex@test.com")).isTrue();
+        assertThat(underTest.existsCustomerById(1L)).isTrue();
+    }
+
+    @Test
+    void returnedCustomersAreCopies() {
+        underTest.insertCustomer(new Customer("Alex", "alex@test.com", 30));
+
+        underTest.selectCustomerById(1L).orElseThrow().setName("Changed");
+
+        assertThat(underTest.selectCustomerById(1L)).get().extracting(Customer::getName).isEqualTo("Alex");
+    }
+
+    @Test
+    void willThrowWhenEmailIsTaken() {
+        underTest.insertCustomer(new Customer("Alex", "alex@test.com", 30));
+
+        assertThatThrownBy(() -> underTest.insertCustomer(new Customer("Other", "alex@test.com", 40)))
+                .isInstanceOf(DuplicateKeyException.class);
+        assertThat(underTest.selectAllCustomers()).hasSize(1);
+    }
+
+    @Test
+    void insertCustomersIsAllOrNothing() {
+        underTest.insertCustomer(new Customer("Alex", "alex@test.com", 30));
+
+        assertThatThrownBy(() -> underTest.insertCustomers(List.of(
+                new Customer("First", "first@test.com", 20),
+                new Customer("Alex", "alex@test.com", 30))))
+                .isInstanceOf(DuplicateKeyException.class);
+
+        assertThat(underTest.selectAllCustomers()).hasSize(1);
+        assertThat(underTest.existPersonWithEmail("first@test.com")).isFalse();
+    }
+
+    @Test
+    void updateCustomerBumpsVersionAndMovesEmail() {
+        underTest.insertCustomer(new Customer("Alex", "alex@test.com", 30));
+
+        assertThat(underTest.updateCustomer(new CustomerUpdate(1L, null, "new@test.com", null, 0L))).isEqualTo(1);
+
+        assertThat(underTest.selectCustomerById(1L)).get()
+                                                    .extracting(Customer::getEmail, Customer::getVersion)
+                                                    .containsExactly("new@test.com", 1L);
+        assertThat(underTest.existPersonWithEmail("alex@test.com")).isFalse();
+        assertThat(underTest.existPersonWithEmail("new@test.com")).isTrue();
+    }
+
+    @Test
+    void updateAffectsNoRowsWhenMissingStaleOrUnchanged() {
+        underTest.insertCustomer(new Customer("Alex", "alex@test.com", 30));
+
+        assertThat(underTest.updateCustomer(new CustomerUpdate(2L, "Other", null, null))).isZero();
+        assertThat(underTest.updateCustomer(new CustomerUpdate(1L, "Other", null, null, 5L))).isZero();
+        assertThat(underTest.updateCustomer(new CustomerUpdate(1L, "Alex", "alex@test.com", 30))).isZero();
+        assertThat(underTest.selectCustomerById(1L)).get().extracting(Customer::getVersion).isEqualTo(0L);
+    }
+
+    @Test
+    void willThrowWhenUpdatingToTakenEmail() {
+        underTest.insertCustomer(new Customer("Alex", "alex@test.com", 30));
+        underTest.insertCustomer(new Customer("Bea", "bea@test.com", 40));
+
+        assertThatThrownBy(() -> underTest.updateCustomer(new CustomerUpdate(2L, null, "alex@test.com", null)))
+                .isInstanceOf(DuplicateKeyException.class);
+        assertThat(underTest.selectCustomerById(2L)).get().extracting(Customer::getEmail).isEqualTo("bea@test.com");
+    }
+
+    @Test
+    void willRejectValuesTheTableCannotHold() {
+        underTest.insertCustomer(new Customer("Alex", "alex@test.com", 30));
+
+        assertThatThrownBy(() -> underTest.insertCustomer(new Customer("A name far longer than the column allows", "long@test.com", 30)))
+                .isInstanceOf(DataIntegrityViolationException.class);
+        assertThatThrownBy(() -> underTest.insertCustomers(List.of(new Customer("Bea", "bea@test.com", null))))
+                .isInstanceOf(DataIntegrityViolationException.class);
+        assertThatThrownBy(() -> underTest.updateCustomer(new CustomerUpdate(1L, "A name far longer than the column allows", null, null)))
+                .isInstanceOf(DataIntegrityViolationException.class);
+
+        assertThat(underTest.selectAllCustomers()).extracting(Customer::getName).containsExactly("Alex");
+        assertThat(underTest.existPersonWithEmail("long@test.com")).isFalse();
+    }
+
+    @Test
+    void importCustomersMergesByEmail() {
+        underTest.insertCustomer(new Customer("Alex", "alex@test.com", 30));
+        underTest.insertCustomer(new Customer("Bea", "bea@test.com", 40));
+        String csv = """
+                name,email,age
+                Alexander,ALEX@test.com,31
+                Bea,bea@test.com,40
+                "Cole, Jr.",cole@test.com,25
+                A name far longer than the column allows,long@test.com,50
+                Dana,,33
+                """;
+
+        CustomerImportResult result = underTest.importCustomers(new StringReader(csv), CustomerImportFormat.CSV);
+
+        assertThat(result).isEqualTo(new CustomerImportResult(5, 1, 1, 3));
+        assertThat(underTest.selectAllCustomers()).extracting(Customer::getName, Customer::getEmail, Customer::getVersion)
+                                                  .containsExactly(tuple("Alexander", "alex@test.com", 1L),
+                                                                   tuple("Bea", "bea@test.com", 0L),
+                                                                   tuple("Cole, Jr.", "cole@test.com", 0L));
+    }
+
+    @Test
+    void importCustomersFromNdjson() {
+        String ndjson = """
+                {"name":"Alex","email":"alex@test.com","age":30}
+                {"name":"Bea","email":"bea@test.com","age":"forty"}
+                """;
+
+        CustomerImportResult result = underTest.importCustomers(new StringReader(ndjson), CustomerImportFormat.NDJSON);
+
+        assertThat(result).isEqualTo(new CustomerImportResult(2, 1, 0, 1));
+        assertThat(underTest.existPersonWithEmail("alex@test.com")).isTrue();
+    }
+
+    @Test
+    void willThrowWhenImportIsMalformed() {
+        underTest.insertCustomer(new Customer("Alex", "alex@test.com", 30));
+
+        assertThatThrownBy(() -> underTest.importCustomers(
+                new StringReader("name,email,age\nAlexander,alex@test.com,31\nBea,bea@test.com,forty\n"), CustomerImportFormat.CSV))
+                .isInstanceOf(DataIntegrityViolationException.class);
+        assertThatThrownBy(() -> underTest.importCustomers(new StringReader("{\"name\":\n"), CustomerImportFormat.NDJSON))
+                .isInstanceOf(DataIntegrityViolationException.class);
+
+        assertThat(underTest.selectAllCustomers()).extracting(Customer::getName).containsExactly("Alex");
+    }
+
+    @Test
+    void deleteCustomerReleasesEmail() {
+        underTest.insertCustomer(new Customer("Alex", "alex@test.com", 30));
+
+        assertThat(underTest.deleteCustomer(1L)).isTrue();
+        assertThat(underTest.deleteCustomer(1L)).isFalse();
+
+        underTest.insertCustomer(new Customer("Alex", "alex@test.com", 30));
+        assertThat(underTest.selectCustomerById(2L)).isPresent();
+    }
+
+    @Test
+    void selectCustomersPage() {
+        for (int i = 0; i < 5; i++) {
+            underTest.insertCustomer(new Customer("Test", "user" + i + "@test.com", 20));
+        }
+
+        CustomerPage first = underTest.selectCustomersPage(null, 2);
+        assertThat(first.customers()).extracting(Customer::getId).containsExactly(1L, 2L);
+        assertThat(first.nextCursor()).isEqualTo("2");
+
+        CustomerPage last = underTest.selectCustomersPage(4L, 2);
+        assertThat(last.customers()).extracting(Customer::getId).containsExactly(5L);
+        assertThat(last.nextCursor()).isNull();
+    }
+
+    @Test
+    void selectFilteredAndSortedCustomersPages() {
+        int[] ages = {33, 21, 33, 58, 40};
+        for (int i = 0; i < ages.length; i++) {
+            underTest.insertCustomer(new Customer("Anna " + i, "anna" + i + "@a.test", ages[i]));
+        }
+        underTest.insertCustomer(new Customer("Anna X", "anna@b.test", 50));
+        underTest.insertCustomer(new Customer("Bob", "bob@a.test", 50));
+
+        CustomerFilter filter = new CustomerFilter(null, null, "an", "a.test");
+        List<Customer> walked = walk(filter, CustomerSort.of("-age"));
+
+        assertThat(walked).extracting(Customer::getAge).containsExactly(58, 40, 33, 33, 21);
+        assertThat(walked).extracting(Customer::getId).containsSubsequence(3L, 1L);
+    }
+
+    @Test
+    void selectFilteredCustomersPagesInIdOrder() {
+        for (int i = 0; i < 6; i++) {
+            underTest.insertCustomer(new Customer("Test " + i, "test" + i + "@test.com", i % 2 == 0 ? 20 : 40));
+        }
+        CustomerFilter filter = new CustomerFilter(30, null, null, null);
+
+        assertThat(walk(filter, CustomerSort.of("id"))).extracting(Customer::getId).containsExactly(2L, 4L, 6L);
+        assertThat(walk(filter, CustomerSort.of("-id"))).extracting(Customer::getId).containsExactly(6L, 4L, 2L);
+    }
+
+    private List<Customer> walk(CustomerFilter filter, CustomerSort sort) {
+        List<Customer> walked = new ArrayList<>();
+        CustomerPage page = underTest.selectCustomersPage(filter, sort, null, 2);
+        walked.addAll(page.customers());
+        while (page.nextCursor() != null) {
+            page = underTest.selectCustomersPage(filter, sort, CustomerCursor.decode(page.nextCursor(), sort), 2);
+            walked.addAll(page.customers());
+        }
+        return walked;
+    }
+
+    @Test
+    void searchCustomersRanksWholeWordsFirst() {
+        underTest.insertCustomer(new Customer("Annabel Lee", "lee@test.com", 30));
+        underTest.insertCustomer(new Customer("Ann Smith", "smith@test.com", 30));
+        underTest.insertCustomer(new Customer("Joanna Ray", "ray@test.com", 30));
+
+        CustomerSearchPage page = underTest.searchCustomers("ann", 0, 2);
+
+        assertThat(page.customers()).extracting(Customer::getName).containsExactly("Ann Smith", "Annabel Lee");
+        assertThat(page.nextOffset()).isEqualTo(2);
+        assertThat(underTest.searchCustomers("ann", 2, 2).customers()).extracting(Customer::getName)
+                                                                     .containsExactly("Joanna Ray");
+    }
+
+    @Test
+    void loadsFromSourceAndContinuesSequence() {
+        CustomerInMemoryDataAccessService source = new CustomerInMemoryDataAccessService(null);
+        source.insertCustomer(new Customer(41L, "Alex", "alex@test.com", 30));
+        CustomerInMemoryDataAccessService engine = new CustomerInMemoryDataAccessService(source);
+
+        engine.afterPropertiesSet();
+        engine.insertCustomer(new Customer("Bea", "bea@test.com", 40));
+
+        assertThat(engine.selectAllCustomers()).extracting(Customer::getId).containsExactly(41L, 42L);
+        assertThat(engine.existPersonWithEmail("alex@test.com")).isTrue();
+    }
+
+    @Test
+    void writeBehindReplaysChangesInOrder() throws InterruptedException {
+        CustomerInMemoryDataAccessService source = new CustomerInMemoryDataAccessService(null);
+        CustomerInMemoryDataAccessService engine = new CustomerInMemoryDataAccessService(source);
+        ReflectionTestUtils.setField(engine, "writeBehindEnabled", true);
+        engine.afterPropertiesSet();
+
+        engine.insertCustomers(List.of(new Customer("Alex", "alex@test.com", 30), new Customer("Bea", "bea@test.com", 40)));
+        engine.updateCustomer(new CustomerUpdate(1L, "Alexander", null, null));
+        engine.deleteCustomer(2L);
+        engine.destroy();
+
+        assertThat(source.selectAllCustomers()).usingRecursiveFieldByFieldElementComparator()
+                                               .containsExactlyElementsOf(engine.selectAllCustomers());
+    }
+
+    @Test
+    void writeBehindRetriesFailedReplay() throws InterruptedException {
+        CustomerInMemoryDataAccessService source = spy(new CustomerInMemoryDataAccessService(null));
+        doThrow(new QueryTimeoutException("timeout")).doCallRealMethod().when(source).insertCustomer(any());
+        CustomerInMemoryDataAccessService engine = new CustomerInMemoryDataAccessService(source);
+        ReflectionTestUtils.setField(engine, "writeBehindEnabled", true);
+        ReflectionTestUtils.setField(engine, "retryBackoff", Duration.ofMillis(1));
+        engine.afterPropertiesSet();
+
+        engine.insertCustomer(new Customer("Alex", "alex@test.com", 30));
+        engine.updateCustomer(new CustomerUpdate(1L, "Alexander", null, null));
+        engine.destroy();
+
+        verify(source, times(2)).insertCustomer(any());
+        assertThat(source.selectAllCustomers()).usingRecursiveFieldByFieldElementComparator()
+                                               .containsExactlyElementsOf(engine.selectAllCustomers());
+    }
+
+    @Test
+    void concurrentInsertsKeepEmailsUnique() throws Exception {
+        int threads = 8;
+        int emails = 500;
+        AtomicInteger duplicates = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        try (ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < emails; i++) {
+                        try {
+                            underTest.insertCustomer(new Customer("Test", "user" + i + "@test.com", 20));
+                        } catch (DuplicateKeyException e) {
+                            duplicates.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) future.get();
+        }
+
+        assertThat(underTest.selectAllCustomers()).hasSize(emails)
+                                                  .extracting(Customer::getEmail).doesNotHaveDuplicates();
+        assertThat(duplicates).hasValue(emails * (threads - 1));
+    }
+
+    @Test
+    void concurrentUpdatesBumpVersionOncePerChange() throws Exception {
+        underTest.insertCustomer(new Customer("Test", "test@test.com", 0));
+        int threads = 8;
+        int updates = 1000;
+        CountDownLatch start = new CountDownLatch(1);
+        try (ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int offset = t * updates;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    int changed = 0;
+                    for (int i = 1; i <= updates; i++) {
+                        changed += underTest.updateCustomer(new CustomerUpdate(1L, null, null, offset + i));
+                    }
+                    return changed;
+                }));
+            }
+            start.countDown();
+            int changed = 0;
+            for (Future<Integer> future : futures) changed += future.get();
+
+            assertThat(underTest.selectCustomerById(1L)).get().extracting(Customer::getVersion).isEqualTo((long) changed);
+        }
+    }
+}
@@ -1,9 +1,15 @@
 package com.codeapi.customer;
 
 import com.codeapi.AbstractTestContainers;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import java.io.StringReader;
+import java.io.StringWriter;
 import java.util.*;
 
 import static org.assertj.core.api.Assertions.*;
@@ -11,11 +17,14 @@ import static org.assertj.core.api.Assertions.*;
 class
 CustomerJDBCDataAccessServiceTest extends AbstractTestContainers {
 
+    // one pool for the class: a pool per test exhausts the database's connection limit
+    private static JdbcTemplate jdbcTemplate;
     private CustomerJDBCDataAccessService underTest;
 
     @BeforeEach
     void setUp() {
-        underTest = new CustomerJDBCDataAccessService(getJdbcTemplate());
+        if (jdbcTemplate == null) jdbcTemplate = getJdbcTemplate();
+        underTest = new CustomerJDBCDataAccessService(jdbcTemplate);
     }
 
     @Test
@@ -25,6 +34,179 @@ CustomerJDBCDataAccessServiceTest extends AbstractTestContainers {
         assertThat(actual).isNotEmpty();
     }
 
+    @Test
+    void selectCustomersPage() {
+        generateCustomer();
+        generateCustomer();
+        generateCustomer();
+
+        CustomerPage first = underTest.selectCustomersPage(null, 2);
+        assertThat(first.customers()).hasSize(2);
+        assertThat(first.nextCursor()).isEqualTo(String.valueOf(first.customers().get(1).getId()));
+
+        long after = Long.parseLong(first.nextCursor());
+        CustomerPage second = underTest.selectCustomersPage(after, 2);
+        assertThat(second.customers()).isNotEmpty()
+                                      .allSatisfy(c -> assertThat(c.getId()).isGreaterThan(after));
+    }
+
+    @Test
+    void selectFilteredCustomersPage() {
+        String domain = UUID.randomUUID() + ".test";
+        underTest.insertCustomer(new Customer("Anna Smith", "anna@" + domain, 30));
+        underTest.insertCustomer(new Customer("Andrew Brown", "andrew@" + domain, 45));
+        underTest.insertCustomer(new Customer("Anton Gray", "anton@" + domain, 70));
+        underTest.insertCustomer(new Customer("Bob_Stone", "bob@" + domain, 40));
+
+        CustomerPage page = underTest.selectCustomersPage(
+                new CustomerFilter(25, 50, "an", domain), CustomerSort.ID, null, 10);
+
+        assertThat(page.customers()).extracting(Customer::getName)
+                                    .containsExactlyInAnyOrder("Anna Smith", "Andrew Brown");
+        assertThat(page.nextCursor()).isNull();
+
+        CustomerPage escaped = underTest.selectCustomersPage(
+                new CustomerFilter(null, null, "bob_", domain), CustomerSort.ID, null, 10);
+        assertThat(escaped.customers()).extracting(Customer::getName).containsExactly("Bob_Stone");
+        assertThat(underTest.selectCustomersPage(
+                new CustomerFilter(null, null, "bo%", domain), CustomerSort.ID, null, 10).customers()).isEmpty();
+    }
+
+    @Test
+    void selectSortedCustomersPages() {
+        String domain = UUID.randomUUID() + ".test";
+        for (int age : new int[]{33, 21, 33, 58, 40}) {
+            underTest.insertCustomer(new Customer("Sorted", UUID.randomUUID() + "@" + domain, age));
+        }
+        CustomerFilter filter = new CustomerFilter(null, null, null, domain);
+        CustomerSort sort = CustomerSort.of("-age");
+
+        List<Customer> walked = new ArrayList<>();
+        CustomerPage page = underTest.selectCustomersPage(filter, sort, null, 2);
+        walked.addAll(page.customers());
+        while (page.nextCursor() != null) {
+            page = underTest.selectCustomersPage(filter, sort, CustomerCursor.decode(page.nextCursor(), sort), 2);
+            walked.addAll(page.customers());
+        }
+
+        assertThat(walked).extracting(Customer::getAge).containsExactly(58, 40, 33, 33, 21);
+        assertThat(walked).extracting(Customer::getId).doesNotHaveDuplicates();
+    }
+
+    @Test
+    void sortedCursorOutlivesTheRowItWasTakenFrom() {
+        String domain = UUID.randomUUID() + ".test";
+        for (int age : new int[]{40, 30, 20}) {
+            underTest.insertCustomer(new Customer("Sorted", UUID.randomUUID() + "@" + domain, age));
+        }
+        CustomerFilter filter = new CustomerFilter(null, null, null, domain);
+        CustomerSort sort = CustomerSort.of("-age");
+
+        CustomerPage first = underTest.selectCustomersPage(filter, sort, null, 1);
+        underTest.deleteCustomer(first.customers().get(0).getId());
+        CustomerPage second = underTest.selectCustomersPage(filter, sort, CustomerCursor.decode(first.nextCursor(), sort), 1);
+
+        assertThat(second.customers()).extracting(Customer::getAge).containsExactly(30);
+    }
+
+    @Test
+    void searchCustomersByFragmentTypoAndEmail() {
+        String token = "zq" + UUID.randomUUID().toString().replace("-", "").substring(0, 8);
+        String email = token + "@search.test";
+        underTest.insertCustomer(new Customer("Quentin " + token, email, 30));
+        underTest.insertCustomer(new Customer("Quentin Other", "other." + token + "@search.test", 30));
+
+        assertThat(underTest.searchCustomers(token.substring(0, 7), 0, 10).customers())
+                .extracting(Customer::getEmail).contains(email);
+        assertThat(underTest.searchCustomers(email, 0, 10).customers())
+                .extracting(Customer::getEmail).first().isEqualTo(email);
+
+        CustomerSearchPage first = underTest.searchCustomers(token, 0, 1);
+        assertThat(first.customers()).hasSize(1);
+        assertThat(first.nextOffset()).isEqualTo(1);
+        assertThat(underTest.searchCustomers(token, 1, 1).customers()).doesNotContainAnyElementsOf(first.customers());
+    }
+
+    @Test
+    void searchRanksTheSameCandidatesOnEveryPage() {
+        ReflectionTestUtils.setField(underTest, "searchMaxCandidates", 2);
+        String token = "zq" + UUID.randomUUID().toString().replace("-", "").substring(0, 8);
+        for (int i = 0; i < 3; i++) {
+            underTest.insertCustomer(new Customer("Quentin " + token, i + "." + token + "@search.test", 30));
+        }
+
+        List<Customer> first = underTest.searchCustomers(token, 0, 1).customers();
+        List<Customer> second = underTest.searchCustomers(token, 1, 1).customers();
+
+        assertThat(first).extracting(Customer::getEmail)
+                         .containsAnyOf("0." + token + "@search.test", "1." + token + "@search.test");
+        assertThat(second).extracting(Customer::getEmail)
+                          .containsAnyOf("0." + token + "@search.test", "1." + token + "@search.test")
+                          .doesNotContainAnyElementsOf(first.stream().map(Customer::getEmail).toList());
+    }
+
+    @Test
+    void selectLastCustomersPage() {
+        var customer = generateCustomer();
+        long id = getId(customer);
+
+        CustomerPage page = underTest.selectCustomersPage(id - 1, 10);
+        assertThat(page.customers()).extracting(Customer::getId).containsExactly(id);
+        assertThat(page.nextCursor()).isNull();
+    }
+
+    @Test
+    void streamAllCustomers() {
+        var customer = generateCustomer();
+
+        List<Customer> streamed = new ArrayList<>();
+        underTest.streamAllCustomers(streamed::add);
+
+        assertThat(streamed).extracting(Customer::getEmail).contains(customer.getEmail());
+        assertThat(streamed).hasSameSizeAs(underTest.selectAllCustomers());
+    }
+
+    @Test
+    void writeAllCustomers() throws Exception {
+        var customer = generateCustomer();
+
+        StringWriter out = new StringWriter();
+        try (JsonGenerator generator = new ObjectMapper().getFactory().createGenerator(out)) {
+            underTest.writeAllCustomers(new CustomerJsonWriter(generator));
+        }
+
+        assertThat(out.toString().lines().toList())
+                .hasSameSizeAs(underTest.selectAllCustomers())
+                .anySatisfy(line -> assertThat(new ObjectMapper().readValue(line, Customer.class)).extracting(Customer::getEmail)
+                                                                                                  .isEqualTo(customer.getEmail()));
+    }
+
+    @Test
+    void writeCustomersPageMatchesSelectedPage() throws Exception {
+        String domain = UUID.randomUUID() + ".test";
+        for (int age : new int[]{33, 21, 58}) {
+            underTest.insertCustomer(new Customer("Written", UUID.randomUUID() + "@" + domain, age));
+        }
+        CustomerFilter filter = new CustomerFilter(null, null, null, domain);
+        CustomerSort sort = CustomerSort.of("-age");
+        ObjectMapper objectMapper = new ObjectMapper();
+
+        CustomerPage first = underTest.selectCustomersPage(filter, sort, null, 2);
+        CustomerCursor after = CustomerCursor.decode(first.nextCursor(), sort);
+        CustomerPage last = underTest.selectCustomersPage(filter, sort, after, 2);
+
+        assertThat(writePage(filter, sort, null, 2)).isEqualTo(objectMapper.writeValueAsString(first));
+        assertThat(writePage(filter, sort, after, 2)).isEqualTo(objectMapper.writeValueAsString(last));
+    }
+
+    private String writePage(CustomerFilter filter, CustomerSort sort, CustomerCursor after, int limit) throws Exception {
+        StringWriter out = new StringWriter();
+        try (JsonGenerator generator = new ObjectMapper().getFactory().createGenerator(out)) {
+            underTest.writeCustomersPage(filter, sort, after, limit, CustomerJsonWriter.page(generator));
+        }
+        return out.toString();
+    }
+
     @Test
     void selectCustomerById() {
         var customer = generateCustomer();
@@ -63,6 +245,42 @@ CustomerJDBCDataAccessServiceTest extends AbstractTestContainers {
         });
     }
 
+    @Test
+    void insertCustomerKeepsPresetId() {
+        long id = jdbcTemplate.queryForObject("SELECT last_value FROM customer_id_seq", Long.class) + 1_000;
+        String email = UUID.randomUUID() + "@test.com";
+
+        underTest.insertCustomer(new Customer(id, "Preset", email, 30));
+
+        assertThat(underTest.selectCustomerById(id)).get().extracting(Customer::getEmail).isEqualTo(email);
+    }
+
+    @Test
+    void insertCustomerWithPresetIdAdvancesSequence() {
+        long id = jdbcTemplate.queryForObject("SELECT last_value FROM customer_id_seq", Long.class) + 1_000;
+        String domain = UUID.randomUUID() + ".test";
+        underTest.insertCustomer(new Customer(id, "Preset", "preset@" + domain, 30));
+
+        underTest.insertCustomer(new Customer("Generated", "generated@" + domain, 30));
+
+        Customer generated = underTest.selectCustomersPage(new CustomerFilter(null, null, "gen", domain), CustomerSort.ID, null, 1)
+                                      .customers().get(0);
+        assertThat(generated.getId()).isGreaterThan(id);
+    }
+
+    @Test
+    void selectCustomersByIds() {
+        String domain = UUID.randomUUID() + ".test";
+        underTest.insertCustomer(new Customer("First", "first@" + domain, 30));
+        underTest.insertCustomer(new Customer("Second", "second@" + domain, 40));
+        List<Long> ids = underTest.selectCustomersPage(new CustomerFilter(null, null, null, domain), CustomerSort.ID, null, 2)
+                                  .customers().stream().map(Customer::getId).toList();
+
+        List<Customer> actual = underTest.selectCustomersByIds(List.of(ids.get(1), -1L, ids.get(0)));
+
+        assertThat(actual).extracting(Customer::getName).containsExactlyInAnyOrder("First", "Second");
+    }
+
     @Test
     void existPersonWithEmail() {
         var customer = generateCustomer();
@@ -75,6 +293,64 @@ CustomerJDBCDataAccessServiceTest extends AbstractTestContainers {
         assertThat(result).isTrue();
     }
 
+    @Test
+    void selectExistingEmails() {
+        var customer = generateCustomer();
+
+        Set<String> result = underTest.selectExistingEmails(List.of(customer.getEmail(), "missing@test.com"));
+        assertThat(result).containsExactly(customer.getEmail());
+    }
+
+    @Test
+    void insertCustomers() {
+        String suffix = UUID.randomUUID().toString();
+        List<Customer> customers = List.of(
+                new Customer("First", "first." + suffix + "@test.com", 20),
+                new Customer("Second", "second." + suffix + "@test.com", 30)
+        );
+
+        underTest.insertCustomers(customers);
+
+        Set<String> inserted = underTest.selectExistingEmails(customers.stream().map(Customer::getEmail).toList());
+        assertThat(inserted).hasSize(2);
+    }
+
+    @Test
+    void importCustomersFromCsv() {
+        var existing = generateCustomer();
+        String email = "csv." + UUID.randomUUID() + "@test.com";
+        String csv = """
+                name,email,age
+                Csv Customer,%s,33
+                Renamed,%s,44
+                ,missing.name@test.com,20
+                """.formatted(email.toUpperCase(), existing.getEmail());
+
+        CustomerImportResult result = underTest.importCustomers(new StringReader(csv), CustomerImportFormat.CSV);
+
+        assertThat(result).isEqualTo(new CustomerImportResult(3, 1, 1, 1));
+        assertThat(underTest.existPersonWithEmail(email)).isTrue();
+        long id = getId(existing);
+        assertThat(underTest.selectCustomerById(id)).hasValueSatisfying(c -> {
+            assertThat(c.getName()).isEqualTo("Renamed");
+            assertThat(c.getAge()).isEqualTo(44);
+        });
+    }
+
+    @Test
+    void importCustomersFromNdjson() {
+        String email = "ndjson." + UUID.randomUUID() + "@test.com";
+        String ndjson = """
+                {"name": "Json \\"Quoted\\"", "email": "%s", "age": 21}
+                {"name": "No Age", "email": "no.age@test.com"}
+                """.formatted(email);
+
+        CustomerImportResult result = underTest.importCustomers(new StringReader(ndjson), CustomerImportFormat.NDJSON);
+
+        assertThat(result).isEqualTo(new CustomerImportResult(2, 1, 0, 1));
+        assertThat(underTest.existPersonWithEmail(email)).isTrue();
+    }
+
     @Test
     void notExistPersonWithEmail() {
         String notExistEmail = "test@test.com";
@@ -95,6 +371,12 @@ CustomerJDBCDataAccessServiceTest extends AbstractTestContainers {
         assertThat(result).isEmpty();
     }
 
+    @Test
+    void deleteReportsMissingCustomer() {
+        boolean deleted = underTest.deleteCustomer(-1L);
+        assertThat(deleted).isFalse();
+    }
+
     @Test
     void existsCustomerById() {
         var customer = generateCustomer();
@@ -167,6 +449,82 @@ CustomerJDBCDataAccessServiceTest extends AbstractTestContainers {
         });
     }
 
+    @Test
+    void updateOnlyChangedColumns() {
+        var customer = generateCustomer();
+        long id = getId(customer);
+
+        underTest.updateCustomer(new CustomerUpdate(id, null, null, 42));
+
+        Optional<Customer> result = underTest.selectCustomerById(id);
+        assertThat(result).isPresent().hasValueSatisfying(c -> {
+            assertThat(c.getName()).isEqualTo(customer.getName());
+            assertThat(c.getEmail()).isEqualTo(customer.getEmail());
+            assertThat(c.getAge()).isEqualTo(42);
+        });
+    }
+
+    @Test
+    void updateWithUnchangedValuesAffectsNoRows() {
+        var customer = generateCustomer();
+        long id = getId(customer);
+
+        int updated = underTest.updateCustomer(new CustomerUpdate(id, customer.getName(), null, customer.getAge()));
+        assertThat(updated).isZero();
+    }
+
+    @Test
+    void updateIncrementsVersion() {
+        var customer = generateCustomer();
+        long id = getId(customer);
+        long version = underTest.selectCustomerById(id).orElseThrow().getVersion();
+
+        underTest.updateCustomer(new CustomerUpdate(id, null, null, 42, version));
+
+        assertThat(underTest.selectCustomerById(id)).hasValueSatisfying(c -> {
+            assertThat(c.getAge()).isEqualTo(42);
+            assertThat(c.getVersion()).isEqualTo(version + 1);
+        });
+    }
+
+    @Test
+    void updateCustomersInBatch() {
+        var first = generateCustomer();
+        var second = generateCustomer();
+        long firstId = getId(first);
+        long secondId = getId(second);
+
+        int[] counts = underTest.updateCustomers(List.of(
+                new CustomerUpdate(firstId, "Batched", null, 42),
+                new CustomerUpdate(secondId, null, null, second.getAge())));
+
+        assertThat(counts).containsExactly(1, 0);
+        assertThat(underTest.selectCustomerById(firstId)).hasValueSatisfying(c -> {
+            assertThat(c.getName()).isEqualTo("Batched");
+            assertThat(c.getEmail()).isEqualTo(first.getEmail());
+            assertThat(c.getAge()).isEqualTo(42);
+            assertThat(c.getVersion()).isEqualTo(1L);
+        });
+        assertThat(underTest.selectCustomerById(secondId)).get().extracting(Customer::getVersion).isEqualTo(0L);
+    }
+
+    @Test
+    void updateWithStaleVersionAffectsNoRows() {
+        var customer = generateCustomer();
+        long id = getId(customer);
+        long version = underTest.selectCustomerById(id).orElseThrow().getVersion();
+        underTest.updateCustomer(new CustomerUpdate(id, null, null, 42));
+
+        int updated = underTest.updateCustomer(new CustomerUpdate(id, null, null, 43, version));
+        assertThat(updated).isZero();
+    }
+
+    @Test
+    void updateMissingCustomerAffectsNoRows() {
+        int updated = underTest.updateCustomer(new CustomerUpdate(-1L, "TEST", null, null));
+        assertThat(updated).isZero();
+    }
+
     @Test
     void updateCustomer() {
         var customer = generateCustomer();
@@ -0,0 +1,75 @@
+package com.codeapi.customer;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class CustomerJsonWriterTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void writeRowMatchesDefaultSerialization() throws Exception {
+        ResultSet resultSet = mock(ResultSet.class);
+        when(resultSet.getLong(1)).thenReturn(1L);
+        when(resultSet.getString(2)).thenReturn("Test \"Quoted\" Ünïcode");
+        when(resultSet.getString(3)).thenReturn("test@test.com");
+        when(resultSet.getInt(4)).thenReturn(19);
+        when(resultSet.getLong(5)).thenReturn(3L);
+
+        String json = write(writer -> {
+            writer.writeRow(resultSet);
+            writer.writeRow(resultSet);
+        });
+
+        String expected = objectMapper.writeValueAsString(new Customer(1L, "Test \"Quoted\" Ünïcode", "test@test.com", 19, 3L));
+        assertThat(json).isEqualTo(expected + "\n" + expected + "\n");
+    }
+
+    @Test
+    void writeCustomerMatchesDefaultSerialization() throws Exception {
+        Customer customer = new Customer(1L, "Test", "test@test.com", 19);
+
+        String json = write(writer -> writer.write(customer));
+
+        assertThat(json).isEqualTo(objectMapper.writeValueAsString(customer) + "\n");
+    }
+
+    @Test
+    void pageMatchesDefaultSerialization() throws Exception {
+        List<Customer> customers = List.of(new Customer(1L, "Test", "test@test.com", 19, 3L),
+                                           new Customer(2L, "Other", "other@test.com", 40, 0L));
+
+        for (String nextCursor : Arrays.asList("2", null)) {
+            StringWriter out = new StringWriter();
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                CustomerJsonWriter writer = CustomerJsonWriter.page(generator);
+                customers.forEach(writer::write);
+                writer.endPage(nextCursor);
+            }
+
+            assertThat(out.toString()).isEqualTo(objectMapper.writeValueAsString(new CustomerPage(customers, nextCursor)));
+        }
+    }
+
+    private String write(Rows rows) throws Exception {
+        StringWriter out = new StringWriter();
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            rows.write(new CustomerJsonWriter(generator));
+        }
+        return out.toString();
+    }
+
+    private interface Rows {
+        void write(CustomerJsonWriter writer) throws SQLException;
+    }
+}
@@ -0,0 +1,58 @@
+package com.codeapi.customer;
+
+import com.codeapi.exception.PreconditionFailedException;
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.*;
+
+class CustomerRepresentationTest {
+
+    @Test
+    void defaultsToJson() {
+        assertThat(CustomerRepresentation.negotiate(null)).contains(CustomerRepresentation.JSON);
+        assertThat(CustomerRepresentation.negotiate("*/*")).contains(CustomerRepresentation.JSON);
+    }
+
+    @Test
+    void negotiatesByQualityAndSpecificity() {
+        assertThat(CustomerRepresentation.negotiate("application/json;q=0.5, application/x-protobuf"))
+                .contains(CustomerRepresentation.PROTOBUF);
+        assertThat(CustomerRepresentation.negotiate("*/*;q=0.1, application/cbor"))
+                .contains(CustomerRepresentation.CBOR);
+        assertThat(CustomerRepresentation.negotiate("application/json;q=0, application/x-jackson-smile;q=0.2"))
+                .contains(CustomerRepresentation.SMILE);
+        assertThat(CustomerRepresentation.negotiate("text/html")).isEmpty();
+    }
+
+    @Test
+    void negotiatesOnlyAmongAvailableFormats() {
+        Set<CustomerRepresentation> available = EnumSet.of(CustomerRepresentation.JSON, CustomerRepresentation.SMILE);
+
+        assertThat(CustomerRepresentation.negotiate("application/x-protobuf, application/json;q=0.5", available))
+                .contains(CustomerRepresentation.JSON);
+        assertThat(CustomerRepresentation.negotiate("application/*", available))
+                .contains(CustomerRepresentation.JSON);
+        assertThat(CustomerRepresentation.negotiate("application/cbor", available)).isEmpty();
+    }
+
+    @Test
+    void tagsEachFormatApart() {
+        assertThat(CustomerRepresentation.JSON.eTag(3)).isEqualTo("3");
+        assertThat(CustomerRepresentation.PROTOBUF.eTag(3)).isEqualTo("3-protobuf");
+
+        assertThat(CustomerRepresentation.expectedVersion("\"3\"")).isEqualTo(3L);
+        assertThat(CustomerRepresentation.expectedVersion("\"3-cbor\"")).isEqualTo(3L);
+        assertThat(CustomerRepresentation.expectedVersion("*")).isNull();
+    }
+
+    @Test
+    void willThrowWhenIfMatchCannotMatchAVersion() {
+        assertThatThrownBy(() -> CustomerRepresentation.expectedVersion("\"3-xml\""))
+                .isInstanceOf(PreconditionFailedException.class);
+        assertThatThrownBy(() -> CustomerRepresentation.expectedVersion("W/\"3\""))
+                .isInstanceOf(PreconditionFailedException.class);
+    }
+}
@@ -19,10 +19,12 @@ class CustomerRowMapperTest {
         when(resultSet.getString("name")).thenReturn("TEST");
         when(resultSet.getString("email")).thenReturn("test@test.com");
         when(resultSet.getInt("age")).thenReturn(19);
+        when(resultSet.getLong("version")).thenReturn(3L);
 
         Customer actual = customerRowMapper.mapRow(resultSet, 1);
 
         Customer expected = new Customer(1L, "TEST", "test@test.com", 19);
         assertThat(actual).isEqualTo(expected);
+        assertThat(actual.getVersion()).isEqualTo(3L);
     }
 }
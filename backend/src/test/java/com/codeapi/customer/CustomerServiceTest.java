@@ -2,15 +2,32 @@ package com.codeapi.customer;
 
 import com.codeapi.exception.DuplicateResourceException;
 import com.codeapi.exception.NotModifiedException;
+import com.codeapi.exception.PreconditionFailedException;
+import com.codeapi.exception.RequestValidationException;
 import com.codeapi.exception.ResourceNotFoundException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.cache.support.NoOpCacheManager;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 import static org.assertj.core.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -24,14 +41,102 @@ class CustomerServiceTest {
 
     @BeforeEach
     void setUp() {
-        underTest = new CustomerService(customerDao);
+        underTest = new CustomerService(customerDao, new NoOpCacheManager(), new EmailBloomFilter(customerDao), null, null);
+    }
+
+
+    @Test
+    void getCustomers() {
+        CustomerPage page = new CustomerPage(List.of(new Customer(1L, "Test", "test@test.com", 19)), "1");
+        when(customerDao.selectCustomersPage(null, 50)).thenReturn(page);
+
+        CustomerPage result = underTest.getCustomers(null, null);
+        assertThat(result).isEqualTo(page);
+    }
+
+    @Test
+    void getCustomersAfterCursor() {
+        underTest.getCustomers(10L, 20);
+        verify(customerDao).selectCustomersPage(10L, 20);
+    }
+
+    @Test
+    void willThrowWhenPageLimitIsOutOfRange() {
+        assertThatThrownBy(() -> underTest.getCustomers(null, 0))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("Limit must be between 1 and 500");
+        assertThatThrownBy(() -> underTest.getCustomers(null, 501))
+                .isInstanceOf(RequestValidationException.class);
+
+        verify(customerDao, never()).selectCustomersPage(any(), anyInt());
+    }
+
+    @Test
+    void getFilteredCustomers() {
+        CustomerFilter filter = new CustomerFilter(18, 30, "an", null);
+        CustomerSort sort = CustomerSort.of("-age");
+
+        String after = new CustomerCursor(sort, "33", 10L).encode();
+
+        underTest.getCustomers(filter, sort, after, 20);
+
+        verify(customerDao).selectCustomersPage(filter, sort, new CustomerCursor(sort, "33", 10L), 20);
+        verify(customerDao, never()).selectCustomersPage(any(), anyInt());
+    }
+
+    @Test
+    void willThrowWhenAgeRangeIsInverted() {
+        assertThatThrownBy(() -> underTest.getCustomers(new CustomerFilter(40, 30, null, null), CustomerSort.ID, null, null))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("ageMin must not be greater than ageMax");
+    }
+
+    @Test
+    void willThrowWhenCursorWasIssuedForAnotherSort() {
+        String after = new CustomerCursor(CustomerSort.of("age"), "33", 10L).encode();
+
+        assertThatThrownBy(() -> underTest.getCustomers(CustomerFilter.NONE, CustomerSort.of("-age"), after, null))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("Cursor is not valid for this listing and sort");
+        assertThatThrownBy(() -> underTest.getCustomers(CustomerFilter.NONE, CustomerSort.ID, "-1", null))
+                .isInstanceOf(RequestValidationException.class);
     }
 
+    @Test
+    void searchCustomers() {
+        when(customerDao.searchCustomers("leff", 0, 50)).thenReturn(new CustomerSearchPage(List.of(), null));
+
+        underTest.searchCustomers("  Leff ", null, null);
+        verify(customerDao).searchCustomers("leff", 0, 50);
+    }
+
+    @Test
+    void willThrowWhenSearchQueryIsTooShort() {
+        assertThatThrownBy(() -> underTest.searchCustomers("ab", null, null))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("Search query must be at least 3 characters");
+        verifyNoInteractions(customerDao);
+    }
 
     @Test
-    void getAllCustomers() {
-        underTest.getAllCustomers();
-        verify(customerDao).selectAllCustomers();
+    void willNotOfferSearchPageBeyondMaxOffset() {
+        when(customerDao.searchCustomers("leff", 1000, 50)).thenReturn(new CustomerSearchPage(List.of(), 1050));
+
+        assertThat(underTest.searchCustomers("leff", 1000, 50).nextOffset()).isNull();
+    }
+
+    @Test
+    void exportCustomers() {
+        Customer customer = new Customer(1L, "Test", "test@test.com", 19);
+        doAnswer(invocation -> {
+            Consumer<Customer> consumer = invocation.getArgument(0);
+            consumer.accept(customer);
+            return null;
+        }).when(customerDao).streamAllCustomers(any());
+
+        List<Customer> exported = new ArrayList<>();
+        underTest.exportCustomers(exported::add);
+        assertThat(exported).containsExactly(customer);
     }
 
     @Test
@@ -44,6 +149,194 @@ class CustomerServiceTest {
         assertThat(result).isEqualTo(customer);
     }
 
+    @Test
+    void canGetCachedCustomer() {
+        underTest = new CustomerService(customerDao, new ConcurrentMapCacheManager(), new EmailBloomFilter(customerDao), null, null);
+        long id = 19;
+        Customer customer = new Customer(id, "Test", "test@test.com", 19);
+        when(customerDao.selectCustomerById(id)).thenReturn(Optional.of(customer));
+
+        underTest.selectCustomerById(id);
+        Customer result = underTest.selectCustomerById(id);
+
+        assertThat(result).isEqualTo(customer);
+        verify(customerDao, times(1)).selectCustomerById(id);
+    }
+
+    @Test
+    void selectCustomersByIdsInRequestOrderAndReportsMissing() {
+        Customer first = new Customer(1L, "First", "first@test.com", 19);
+        Customer third = new Customer(3L, "Third", "third@test.com", 21);
+        when(customerDao.selectCustomersByIds(List.of(3L, 2L, 1L))).thenReturn(List.of(first, third));
+
+        CustomerLookup result = underTest.selectCustomersByIds(List.of(3L, 2L, 1L, 3L));
+
+        assertThat(result.customers()).containsExactly(third, first);
+        assertThat(result.missing()).containsExactly(2L);
+    }
+
+    @Test
+    void selectCustomersByIdsFetchesOnlyCacheMisses() {
+        underTest = new CustomerService(customerDao, new ConcurrentMapCacheManager(), new EmailBloomFilter(customerDao), null, null);
+        Customer cached = new Customer(1L, "Cached", "cached@test.com", 19);
+        Customer fetched = new Customer(2L, "Fetched", "fetched@test.com", 20);
+        when(customerDao.selectCustomerById(1L)).thenReturn(Optional.of(cached));
+        when(customerDao.selectCustomersByIds(List.of(2L))).thenReturn(List.of(fetched));
+        underTest.selectCustomerById(1L);
+
+        CustomerLookup result = underTest.selectCustomersByIds(List.of(2L, 1L));
+
+        assertThat(result.customers()).containsExactly(fetched, cached);
+        assertThat(result.missing()).isEmpty();
+    }
+
+    @Test
+    void willThrowWhenTooManyIdsAreRequested() {
+        List<Long> ids = new ArrayList<>();
+        for (long id = 1; id <= 501; id++) ids.add(id);
+
+        assertThatThrownBy(() -> underTest.selectCustomersByIds(ids))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("Between 1 and 500 ids can be requested at once");
+        assertThatThrownBy(() -> underTest.selectCustomersByIds(List.of()))
+                .isInstanceOf(RequestValidationException.class);
+        verify(customerDao, never()).selectCustomersByIds(any());
+    }
+
+    @Test
+    void concurrentLookupsOfOneCustomerShareOneQuery() throws Exception {
+        Customer customer = new Customer(19L, "Test", "test@test.com", 19);
+        CountDownLatch release = new CountDownLatch(1);
+        when(customerDao.selectCustomerById(19L)).thenAnswer(invocation -> {
+            release.await();
+            return Optional.of(customer);
+        });
+
+        List<Customer> results = burst(100, release, () -> underTest.selectCustomerById(19L));
+        verify(customerDao, times(1)).selectCustomerById(19L);
+
+        // only in-flight calls are shared; without a cache the next lookup queries again
+        assertThat(underTest.selectCustomerById(19L)).isEqualTo(customer);
+        assertThat(results).hasSize(100).containsOnly(customer);
+        verify(customerDao, times(2)).selectCustomerById(19L);
+    }
+
+    @Test
+    void cacheMissesGoThroughBatchLoaderWhenEnabled() {
+        CustomerBatchLoader batchLoader = mock(CustomerBatchLoader.class);
+        underTest = new CustomerService(customerDao, new NoOpCacheManager(), new EmailBloomFilter(customerDao), null, batchLoader);
+        Customer customer = new Customer(19L, "Test", "test@test.com", 19);
+        when(batchLoader.load(19L)).thenReturn(Optional.of(customer));
+        when(batchLoader.load(20L)).thenReturn(Optional.empty());
+
+        assertThat(underTest.selectCustomerById(19L)).isEqualTo(customer);
+        assertThatThrownBy(() -> underTest.selectCustomerById(20L)).isInstanceOf(ResourceNotFoundException.class);
+        verify(customerDao, never()).selectCustomerById(any());
+    }
+
+    @Test
+    void concurrentLookupsShareNotFound() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        when(customerDao.selectCustomerById(19L)).thenAnswer(invocation -> {
+            release.await();
+            return Optional.empty();
+        });
+        AtomicInteger notFound = new AtomicInteger();
+
+        burst(50, release, () -> {
+            try {
+                return underTest.selectCustomerById(19L);
+            } catch (ResourceNotFoundException e) {
+                notFound.incrementAndGet();
+                return null;
+            }
+        });
+
+        assertThat(notFound).hasValue(50);
+        verify(customerDao, times(1)).selectCustomerById(19L);
+    }
+
+    @Test
+    void concurrentIdenticalListingsShareOneQuery() throws Exception {
+        CustomerPage page = new CustomerPage(List.of(new Customer(1L, "Test", "test@test.com", 19)), null);
+        CountDownLatch release = new CountDownLatch(1);
+        when(customerDao.selectCustomersPage(null, 50)).thenAnswer(invocation -> {
+            release.await();
+            return page;
+        });
+        when(customerDao.selectCustomersPage(null, 10)).thenReturn(page);
+
+        List<CustomerPage> pages = burst(100, release, () -> underTest.getCustomers(null, null));
+        underTest.getCustomers(null, 10);
+
+        assertThat(pages).hasSize(100).containsOnly(page);
+        verify(customerDao, times(1)).selectCustomersPage(null, 50);
+        verify(customerDao, times(1)).selectCustomersPage(null, 10);
+    }
+
+    // Starts the callers, lets the first DAO call finish only once every caller is parked (in the DAO or waiting
+    // on it), and collects what each of them got back.
+    private static <T> List<T> burst(int callers, CountDownLatch release, Callable<T> call) throws Exception {
+        List<Thread> threads = new ArrayList<>();
+        List<T> results = Collections.synchronizedList(new ArrayList<>());
+        for (int i = 0; i < callers; i++) {
+            Thread thread = Thread.ofPlatform().start(() -> {
+                try {
+                    results.add(call.call());
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            threads.add(thread);
+        }
+        while (!threads.stream().allMatch(t -> t.getState() == Thread.State.WAITING || !t.isAlive())) {
+            Thread.sleep(1);
+        }
+        release.countDown();
+        for (Thread thread : threads) thread.join();
+        return results;
+    }
+
+    @Test
+    void willNotCacheMissingCustomer() {
+        underTest = new CustomerService(customerDao, new ConcurrentMapCacheManager(), new EmailBloomFilter(customerDao), null, null);
+        long id = 19;
+        when(customerDao.selectCustomerById(id)).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> underTest.selectCustomerById(id)).isInstanceOf(ResourceNotFoundException.class);
+        assertThatThrownBy(() -> underTest.selectCustomerById(id)).isInstanceOf(ResourceNotFoundException.class);
+        verify(customerDao, times(2)).selectCustomerById(id);
+    }
+
+    @Test
+    void updateEvictsCachedCustomer() {
+        underTest = new CustomerService(customerDao, new ConcurrentMapCacheManager(), new EmailBloomFilter(customerDao), null, null);
+        long id = 19;
+        Customer customer = new Customer(id, "Test", "test@test.com", 19);
+        Customer updated = new Customer(id, "Test2", "test@test.com", 19);
+        when(customerDao.selectCustomerById(id)).thenReturn(Optional.of(customer), Optional.of(updated));
+        when(customerDao.updateCustomer(any(CustomerUpdate.class))).thenReturn(1);
+
+        underTest.selectCustomerById(id);
+        underTest.updateCustomer(id, new CustomerDto("Test2", null, null));
+
+        assertThat(underTest.selectCustomerById(id)).isEqualTo(updated);
+    }
+
+    @Test
+    void deleteEvictsCachedCustomer() {
+        underTest = new CustomerService(customerDao, new ConcurrentMapCacheManager(), new EmailBloomFilter(customerDao), null, null);
+        long id = 19;
+        Customer customer = new Customer(id, "Test", "test@test.com", 19);
+        when(customerDao.selectCustomerById(id)).thenReturn(Optional.of(customer), Optional.empty());
+        when(customerDao.deleteCustomer(id)).thenReturn(true);
+
+        underTest.selectCustomerById(id);
+        underTest.deleteCustomer(id);
+
+        assertThatThrownBy(() -> underTest.selectCustomerById(id)).isInstanceOf(ResourceNotFoundException.class);
+    }
+
     @Test
     void willThrowWhenGetCustomerReturnEmptyOptional() {
         long id = 19;
@@ -86,118 +379,215 @@ class CustomerServiceTest {
 
     }
 
+    @Test
+    void insertSkipsEmailQueryWhenFilterRulesItOut() {
+        EmailBloomFilter emailFilter = new EmailBloomFilter(customerDao);
+        emailFilter.rebuild();
+        underTest = new CustomerService(customerDao, new NoOpCacheManager(), emailFilter, null, null);
+
+        underTest.insertCustomer(new CustomerDto("TEST", "test@test.com", 20));
+
+        verify(customerDao, never()).existPersonWithEmail(any());
+        verify(customerDao).insertCustomer(any());
+        assertThat(emailFilter.mightContain("test@test.com")).isTrue();
+    }
+
+    @Test
+    void willThrowWhenInsertViolatesUniqueEmail() {
+        String email = "test@test.com";
+        when(customerDao.existPersonWithEmail(email)).thenReturn(false);
+        doThrow(new DuplicateKeyException("duplicate")).when(customerDao).insertCustomer(any());
+
+        CustomerDto dto = new CustomerDto("TEST", email, 20);
+        assertThatThrownBy(() -> underTest.insertCustomer(dto))
+                .isInstanceOf(DuplicateResourceException.class)
+                .hasMessage("Email %s is already exist".formatted(dto.email()));
+    }
+
+    @Test
+    void insertCustomers() {
+        when(customerDao.selectExistingEmails(Set.of("a@test.com", "b@test.com", "c@test.com")))
+                .thenReturn(Set.of("b@test.com"));
+
+        List<CustomerBatchResult> results = underTest.insertCustomers(List.of(
+                new CustomerDto("A", "A@test.com", 20),
+                new CustomerDto("B", "b@test.com", 30),
+                new CustomerDto("C", "c@test.com", null),
+                new CustomerDto("A2", "a@test.com", 40)
+        ));
+
+        assertThat(results).extracting(CustomerBatchResult::status).containsExactly(
+                CustomerBatchResult.Status.CREATED,
+                CustomerBatchResult.Status.DUPLICATE,
+                CustomerBatchResult.Status.INVALID,
+                CustomerBatchResult.Status.DUPLICATE
+        );
+
+        ArgumentCaptor<List<Customer>> captor = ArgumentCaptor.captor();
+        verify(customerDao).insertCustomers(captor.capture());
+        assertThat(captor.getValue()).extracting(Customer::getEmail).containsExactly("a@test.com");
+    }
+
+    @Test
+    void willThrowWhenBatchIsEmpty() {
+        assertThatThrownBy(() -> underTest.insertCustomers(List.of()))
+                .isInstanceOf(RequestValidationException.class);
+        verify(customerDao, never()).insertCustomers(any());
+    }
+
+    @Test
+    void batchReportsDuplicatesMissingFromStaleFilter() {
+        // rebuilt from a source that has not seen b@test.com yet, so the filter rules it out
+        EmailBloomFilter emailFilter = new EmailBloomFilter(customerDao);
+        emailFilter.rebuild();
+        underTest = new CustomerService(customerDao, new NoOpCacheManager(), emailFilter, null, null);
+        doThrow(new DuplicateKeyException("duplicate")).doNothing().when(customerDao).insertCustomers(any());
+        when(customerDao.selectExistingEmails(Set.of("a@test.com", "b@test.com"))).thenReturn(Set.of("b@test.com"));
+
+        List<CustomerBatchResult> results = underTest.insertCustomers(List.of(
+                new CustomerDto("A", "a@test.com", 20),
+                new CustomerDto("B", "b@test.com", 30)
+        ));
+
+        assertThat(results).extracting(CustomerBatchResult::status).containsExactly(
+                CustomerBatchResult.Status.CREATED,
+                CustomerBatchResult.Status.DUPLICATE
+        );
+        ArgumentCaptor<List<Customer>> captor = ArgumentCaptor.captor();
+        verify(customerDao, times(2)).insertCustomers(captor.capture());
+        assertThat(captor.getAllValues().get(1)).extracting(Customer::getEmail).containsExactly("a@test.com");
+        assertThat(emailFilter.mightContain("a@test.com")).isTrue();
+    }
+
+    @Test
+    void willThrowWhenBatchEmailIsRegisteredConcurrently() {
+        when(customerDao.selectExistingEmails(any())).thenReturn(Set.of());
+        doThrow(new DuplicateKeyException("duplicate")).when(customerDao).insertCustomers(any());
+
+        assertThatThrownBy(() -> underTest.insertCustomers(List.of(new CustomerDto("A", "a@test.com", 20))))
+                .isInstanceOf(DuplicateResourceException.class);
+    }
+
+    @Test
+    void willThrowWhenImportIsMalformed() {
+        StringReader reader = new StringReader("name,email,age\nA,a@test.com,not-a-number\n");
+        when(customerDao.importCustomers(reader, CustomerImportFormat.CSV))
+                .thenThrow(new DataIntegrityViolationException("invalid input syntax for type integer"));
+
+        assertThatThrownBy(() -> underTest.importCustomers(reader, CustomerImportFormat.CSV))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessageStartingWith("Import file is malformed");
+    }
+
     @Test
     void deleteCustomer() {
         long id = 22L;
 
-        when(customerDao.existsCustomerById(id)).thenReturn(true);
+        when(customerDao.deleteCustomer(id)).thenReturn(true);
 
         underTest.deleteCustomer(id);
         verify(customerDao).deleteCustomer(id);
+        verify(customerDao, never()).existsCustomerById(id);
     }
 
     @Test
     void willThrowWhenCustomerIdNotFound() {
         long id = 22L;
 
-        when(customerDao.existsCustomerById(id)).thenReturn(false);
+        when(customerDao.deleteCustomer(id)).thenReturn(false);
         assertThatThrownBy(() -> underTest.deleteCustomer(id))
                 .isInstanceOf(ResourceNotFoundException.class)
                 .hasMessage("Customer with id [%s] not found".formatted(id));
-        verify(customerDao, never()).deleteCustomer(id);
     }
 
     @Test
     void canUpdateAllCustomerProperties() {
         long id = 10L;
         String newEmail = "test2@test2.com";
-        Customer customer = new Customer(id, "TEST", "test@test.com", 20);
 
-        when(customerDao.selectCustomerById(id)).thenReturn(Optional.of(customer));
-        when(customerDao.existPersonWithEmail(newEmail)).thenReturn(false);
+        when(customerDao.updateCustomer(any(CustomerUpdate.class))).thenReturn(1);
 
         CustomerDto updatedCustomer = new CustomerDto("TEST2", newEmail, 40);
         underTest.updateCustomer(id, updatedCustomer);
 
 
-        ArgumentCaptor<Customer> argumentCaptor = ArgumentCaptor.forClass(Customer.class);
+        ArgumentCaptor<CustomerUpdate> argumentCaptor = ArgumentCaptor.forClass(CustomerUpdate.class);
         verify(customerDao).updateCustomer(argumentCaptor.capture());
-        Customer captorValue = argumentCaptor.getValue();
-        assertThat(captorValue.getAge()).isEqualTo(updatedCustomer.age());
-        assertThat(captorValue.getName()).isEqualTo(updatedCustomer.name());
-        assertThat(captorValue.getEmail()).isEqualTo(updatedCustomer.email());
+        CustomerUpdate captorValue = argumentCaptor.getValue();
+        assertThat(captorValue.id()).isEqualTo(id);
+        assertThat(captorValue.age()).isEqualTo(updatedCustomer.age());
+        assertThat(captorValue.name()).isEqualTo(updatedCustomer.name());
+        assertThat(captorValue.email()).isEqualTo(updatedCustomer.email());
     }
 
     @Test
     void canUpdateOnlyCustomerName() {
         long id = 10L;
-        Customer customer = new Customer(id, "TEST", "test@test.com", 20);
 
-        when(customerDao.selectCustomerById(id)).thenReturn(Optional.of(customer));
+        when(customerDao.updateCustomer(any(CustomerUpdate.class))).thenReturn(1);
 
         CustomerDto updatedCustomer = new CustomerDto("TEST2", null, null);
         underTest.updateCustomer(id, updatedCustomer);
 
-        ArgumentCaptor<Customer> argumentCaptor = ArgumentCaptor.forClass(Customer.class);
+        ArgumentCaptor<CustomerUpdate> argumentCaptor = ArgumentCaptor.forClass(CustomerUpdate.class);
         verify(customerDao).updateCustomer(argumentCaptor.capture());
-        Customer captorValue = argumentCaptor.getValue();
-        assertThat(captorValue.getAge()).isEqualTo(customer.getAge());
-        assertThat(captorValue.getName()).isEqualTo(updatedCustomer.name());
-        assertThat(captorValue.getEmail()).isEqualTo(customer.getEmail());
+        CustomerUpdate captorValue = argumentCaptor.getValue();
+        assertThat(captorValue.id()).isEqualTo(id);
+        assertThat(captorValue.age()).isNull();
+        assertThat(captorValue.name()).isEqualTo(updatedCustomer.name());
+        assertThat(captorValue.email()).isNull();
     }
 
     @Test
     void canUpdateOnlyCustomerEmail() {
         long id = 10L;
         String email = "test2@test2.com";
-        Customer customer = new Customer(id, "TEST", "test@test.com", 20);
 
-        when(customerDao.selectCustomerById(id)).thenReturn(Optional.of(customer));
-        when(customerDao.existPersonWithEmail(email)).thenReturn(false);
+        when(customerDao.updateCustomer(any(CustomerUpdate.class))).thenReturn(1);
 
         CustomerDto updatedCustomer = new CustomerDto(null, email, null);
         underTest.updateCustomer(id, updatedCustomer);
 
-        ArgumentCaptor<Customer> argumentCaptor = ArgumentCaptor.forClass(Customer.class);
+        ArgumentCaptor<CustomerUpdate> argumentCaptor = ArgumentCaptor.forClass(CustomerUpdate.class);
         verify(customerDao).updateCustomer(argumentCaptor.capture());
-        Customer captorValue = argumentCaptor.getValue();
-        assertThat(captorValue.getAge()).isEqualTo(customer.getAge());
-        assertThat(captorValue.getName()).isEqualTo(customer.getName());
-        assertThat(captorValue.getEmail()).isEqualTo(updatedCustomer.email());
+        CustomerUpdate captorValue = argumentCaptor.getValue();
+        assertThat(captorValue.id()).isEqualTo(id);
+        assertThat(captorValue.age()).isNull();
+        assertThat(captorValue.name()).isNull();
+        assertThat(captorValue.email()).isEqualTo(updatedCustomer.email());
     }
 
     @Test
     void canUpdateOnlyCustomerAge() {
         long id = 10L;
-        Customer customer = new Customer(id, "TEST", "test@test.com", 20);
 
-        when(customerDao.selectCustomerById(id)).thenReturn(Optional.of(customer));
+        when(customerDao.updateCustomer(any(CustomerUpdate.class))).thenReturn(1);
 
         CustomerDto updatedCustomer = new CustomerDto(null, null, 40);
         underTest.updateCustomer(id, updatedCustomer);
 
-        ArgumentCaptor<Customer> argumentCaptor = ArgumentCaptor.forClass(Customer.class);
+        ArgumentCaptor<CustomerUpdate> argumentCaptor = ArgumentCaptor.forClass(CustomerUpdate.class);
         verify(customerDao).updateCustomer(argumentCaptor.capture());
-        Customer captorValue = argumentCaptor.getValue();
-        assertThat(captorValue.getAge()).isEqualTo(updatedCustomer.age());
-        assertThat(captorValue.getName()).isEqualTo(customer.getName());
-        assertThat(captorValue.getEmail()).isEqualTo(customer.getEmail());
+        CustomerUpdate captorValue = argumentCaptor.getValue();
+        assertThat(captorValue.id()).isEqualTo(id);
+        assertThat(captorValue.age()).isEqualTo(updatedCustomer.age());
+        assertThat(captorValue.name()).isNull();
+        assertThat(captorValue.email()).isNull();
     }
 
     @Test
     void willThrowWhenTryToUpdateCustomerEmailWhenAlreadyTaken() {
         long id = 10L;
         String email = "test2@test2.com";
-        Customer customer = new Customer(id, "TEST", "test@test.com", 20);
 
-        when(customerDao.selectCustomerById(id)).thenReturn(Optional.of(customer));
-        when(customerDao.existPersonWithEmail(email)).thenReturn(true);
+        when(customerDao.updateCustomer(any(CustomerUpdate.class))).thenThrow(new DuplicateKeyException("duplicate"));
 
         CustomerDto updatedCustomer = new CustomerDto(null, email, null);
         assertThatThrownBy(() -> underTest.updateCustomer(id, updatedCustomer))
                 .isInstanceOf(DuplicateResourceException.class).hasMessage("Email already exists!");
 
-        verify(customerDao, never()).updateCustomer(any());
+        verify(customerDao, never()).existPersonWithEmail(any());
+        verify(customerDao, never()).selectCustomerById(any());
     }
 
     @Test
@@ -205,15 +595,138 @@ class CustomerServiceTest {
         long id = 10L;
         Customer customer = new Customer(id, "TEST", "test@test.com", 20);
 
-        when(customerDao.selectCustomerById(id)).thenReturn(Optional.of(customer));
+        when(customerDao.updateCustomer(any(CustomerUpdate.class))).thenReturn(0);
+        when(customerDao.existsCustomerById(id)).thenReturn(true);
 
         CustomerDto updatedCustomer = new CustomerDto(customer.getName(), customer.getEmail(), customer.getAge());
         assertThatThrownBy(() -> underTest.updateCustomer(id, updatedCustomer))
                 .isInstanceOf(NotModifiedException.class)
                 .hasMessage("Nothing to update!");
+    }
+
+    @Test
+    void willThrowWhenUpdateHasNoFields() {
+        assertThatThrownBy(() -> underTest.updateCustomer(10L, new CustomerDto(null, null, null)))
+                .isInstanceOf(NotModifiedException.class)
+                .hasMessage("Nothing to update!");
 
+        verify(customerDao, never()).updateCustomer(any(CustomerUpdate.class));
+    }
 
-        verify(customerDao, never()).updateCustomer(any());
+    @Test
+    void willThrowWhenUpdatedCustomerNotFound() {
+        long id = 10L;
+
+        when(customerDao.updateCustomer(any(CustomerUpdate.class))).thenReturn(0);
+        when(customerDao.existsCustomerById(id)).thenReturn(false);
+
+        assertThatThrownBy(() -> underTest.updateCustomer(id, new CustomerDto("TEST", null, null)))
+                .isInstanceOf(ResourceNotFoundException.class)
+                .hasMessage("Customer with id [%s] not found".formatted(id));
+    }
+
+    @Test
+    void updatePassesExpectedVersionToDao() {
+        long id = 10L;
+        when(customerDao.updateCustomer(any(CustomerUpdate.class))).thenReturn(1);
+
+        underTest.updateCustomer(id, new CustomerDto(null, null, 40), 3L);
+
+        verify(customerDao).updateCustomer(new CustomerUpdate(id, null, null, 40, 3L));
+    }
+
+    @Test
+    void willThrowWhenExpectedVersionIsStale() {
+        long id = 10L;
+        when(customerDao.updateCustomer(any(CustomerUpdate.class))).thenReturn(0);
+        when(customerDao.selectCustomerById(id)).thenReturn(Optional.of(new Customer(id, "TEST", "test@test.com", 19, 4L)));
+
+        assertThatThrownBy(() -> underTest.updateCustomer(id, new CustomerDto(null, null, 40), 3L))
+                .isInstanceOf(PreconditionFailedException.class)
+                .hasMessage("Customer with id [%s] has been modified".formatted(id));
+    }
+
+    @Test
+    void willThrowNotModifiedWhenExpectedVersionMatchesButNothingChanged() {
+        long id = 10L;
+        when(customerDao.updateCustomer(any(CustomerUpdate.class))).thenReturn(0);
+        when(customerDao.selectCustomerById(id)).thenReturn(Optional.of(new Customer(id, "TEST", "test@test.com", 40, 3L)));
+
+        assertThatThrownBy(() -> underTest.updateCustomer(id, new CustomerDto(null, null, 40), 3L))
+                .isInstanceOf(NotModifiedException.class);
+    }
+
+    @Test
+    void writeBehindQueuesUpdate() {
+        long id = 10L;
+        when(customerDao.selectCustomerById(id)).thenReturn(Optional.of(new Customer(id, "TEST", "test@test.com", 19)));
+        CustomerWriteBehind writeBehind = new CustomerWriteBehind(customerDao, new ConcurrentMapCacheManager(), new SimpleMeterRegistry());
+        underTest = new CustomerService(customerDao, new ConcurrentMapCacheManager(), new EmailBloomFilter(customerDao), writeBehind, null);
+
+        underTest.updateCustomer(id, new CustomerDto("Queued", null, null));
+
+        assertThatThrownBy(() -> underTest.updateCustomer(id, new CustomerDto("Queued", null, 19)))
+                .isInstanceOf(NotModifiedException.class);
+        verify(customerDao, never()).updateCustomer(any(CustomerUpdate.class));
+        verify(customerDao, never()).updateCustomers(anyList());
+        assertThat(writeBehind.pendingCount()).isEqualTo(1);
+    }
+
+    @Test
+    void writeBehindFlushesPendingUpdateBeforeRead() {
+        long id = 10L;
+        when(customerDao.selectCustomerById(id)).thenReturn(Optional.of(new Customer(id, "TEST", "test@test.com", 19, 0L)),
+                                                            Optional.of(new Customer(id, "Queued", "test@test.com", 19, 1L)));
+        ConcurrentMapCacheManager cacheManager = new ConcurrentMapCacheManager();
+        CustomerWriteBehind writeBehind = new CustomerWriteBehind(customerDao, cacheManager, new SimpleMeterRegistry());
+        underTest = new CustomerService(customerDao, cacheManager, new EmailBloomFilter(customerDao), writeBehind, null);
+        underTest.updateCustomer(id, new CustomerDto("Queued", null, null));
+
+        Customer actual = underTest.selectCustomerById(id);
+
+        verify(customerDao).updateCustomers(List.of(new CustomerUpdate(id, "Queued", null, null)));
+        assertThat(actual).extracting(Customer::getName, Customer::getVersion).containsExactly("Queued", 1L);
+        assertThat(writeBehind.pendingCount()).isZero();
+    }
+
+    @Test
+    void writeBehindRejectsUpdateTheTableCannotHold() {
+        long id = 10L;
+        CustomerWriteBehind writeBehind = new CustomerWriteBehind(customerDao, new ConcurrentMapCacheManager(), new SimpleMeterRegistry());
+        underTest = new CustomerService(customerDao, new ConcurrentMapCacheManager(), new EmailBloomFilter(customerDao), writeBehind, null);
+
+        assertThatThrownBy(() -> underTest.updateCustomer(id, new CustomerDto("A name far longer than the column allows", null, null)))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("Name must not be longer than 25 characters");
+
+        assertThat(writeBehind.pendingCount()).isZero();
+        verify(customerDao, never()).selectCustomerById(id);
+    }
+
+    @Test
+    void willThrowWhenNewCustomerIsIncomplete() {
+        assertThatThrownBy(() -> underTest.insertCustomer(new CustomerDto("Alex", null, 30)))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("Name, email and age are required");
+
+        verify(customerDao, never()).insertCustomer(any());
+    }
+
+    @Test
+    void writeBehindFlushesBeforeEmailChange() {
+        long id = 10L;
+        when(customerDao.selectCustomerById(id)).thenReturn(Optional.of(new Customer(id, "TEST", "test@test.com", 19)));
+        when(customerDao.updateCustomer(any(CustomerUpdate.class))).thenReturn(1);
+        CustomerWriteBehind writeBehind = new CustomerWriteBehind(customerDao, new NoOpCacheManager(), new SimpleMeterRegistry());
+        underTest = new CustomerService(customerDao, new NoOpCacheManager(), new EmailBloomFilter(customerDao), writeBehind, null);
+
+        underTest.updateCustomer(id, new CustomerDto(null, null, 30));
+        underTest.updateCustomer(id, new CustomerDto(null, "new@test.com", null));
+
+        InOrder inOrder = inOrder(customerDao);
+        inOrder.verify(customerDao).updateCustomers(List.of(new CustomerUpdate(id, null, null, 30)));
+        inOrder.verify(customerDao).updateCustomer(new CustomerUpdate(id, null, "new@test.com", null));
+        assertThat(writeBehind.pendingCount()).isZero();
     }
 
 }
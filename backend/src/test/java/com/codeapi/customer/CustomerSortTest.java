@@ -0,0 +1,33 @@
+package com.codeapi.customer;
+
+import com.codeapi.exception.RequestValidationException;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.*;
+
+class CustomerSortTest {
+
+    @Test
+    void defaultsToId() {
+        assertThat(CustomerSort.of(null)).isEqualTo(CustomerSort.ID);
+        assertThat(CustomerSort.of(" ")).isEqualTo(CustomerSort.ID);
+    }
+
+    @Test
+    void parsesDescendingPrefix() {
+        assertThat(CustomerSort.of("-age")).isEqualTo(new CustomerSort("age", true));
+        assertThat(CustomerSort.of("name")).isEqualTo(new CustomerSort("name", false));
+    }
+
+    @Test
+    void willThrowOnUnknownColumn() {
+        assertThatThrownBy(() -> CustomerSort.of("age; DROP TABLE customer"))
+                .isInstanceOf(RequestValidationException.class);
+    }
+
+    @Test
+    void normalizesEmailDomainFilter() {
+        assertThat(new CustomerFilter(null, null, " ", "@Gmail.com"))
+                .isEqualTo(new CustomerFilter(null, null, null, "gmail.com"));
+    }
+}
@@ -0,0 +1,43 @@
+package com.codeapi.customer;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.*;
+
+class CustomerUpdateStatementTest {
+
+    @Test
+    void buildsStatementForChangedColumnsOnly() {
+        CustomerUpdate update = new CustomerUpdate(7L, "TEST", null, 30);
+
+        assertThat(CustomerJDBCDataAccessService.updateSql(update))
+                .isEqualTo("UPDATE customer SET name = ?, age = ?, version = version + 1 WHERE id = ? AND (name, age) IS DISTINCT FROM (?, ?)");
+        assertThat(CustomerJDBCDataAccessService.updateParams(update)).containsExactly("TEST", 30, 7L, "TEST", 30);
+    }
+
+    @Test
+    void addsVersionCheckWhenExpectedVersionIsGiven() {
+        CustomerUpdate update = new CustomerUpdate(7L, null, null, 30, 4L);
+
+        assertThat(CustomerJDBCDataAccessService.updateSql(update))
+                .isEqualTo("UPDATE customer SET age = ?, version = version + 1 WHERE id = ? AND version = ? AND (age) IS DISTINCT FROM (?)");
+        assertThat(CustomerJDBCDataAccessService.updateParams(update)).containsExactly(30, 7L, 4L, 30);
+    }
+
+    @Test
+    void reusesStatementForSameColumnCombination() {
+        CustomerUpdate first = new CustomerUpdate(1L, null, "a@test.com", null);
+        CustomerUpdate second = new CustomerUpdate(2L, null, "b@test.com", null);
+
+        assertThat(CustomerJDBCDataAccessService.updateSql(first))
+                .isSameAs(CustomerJDBCDataAccessService.updateSql(second));
+    }
+
+    @Test
+    void willThrowWhenNothingToUpdate() {
+        CustomerUpdate update = new CustomerUpdate(1L, null, null, null);
+
+        assertThatThrownBy(() -> CustomerJDBCDataAccessService.updateSql(update))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
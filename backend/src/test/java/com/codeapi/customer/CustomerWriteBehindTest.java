@@ -0,0 +1,106 @@
+package com.codeapi.customer;
+
+import com.codeapi.exception.ServiceUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class CustomerWriteBehindTest {
+
+    private final CustomerInMemoryDataAccessService customerDao = new CustomerInMemoryDataAccessService(null);
+    private final CustomerWriteBehind underTest = new CustomerWriteBehind(customerDao, new ConcurrentMapCacheManager(), new SimpleMeterRegistry());
+
+    @Test
+    void coalescesUpdatesToOneWrite() {
+        customerDao.insertCustomer(new Customer("Alex", "alex@test.com", 30));
+
+        underTest.submit(new CustomerUpdate(1L, "Alexander", null, null));
+        underTest.submit(new CustomerUpdate(1L, null, null, 31));
+        underTest.submit(new CustomerUpdate(1L, null, null, 32));
+        assertThat(underTest.pendingCount()).isEqualTo(1);
+
+        underTest.flush();
+
+        assertThat(customerDao.selectCustomerById(1L)).get()
+                                                      .extracting(Customer::getName, Customer::getAge, Customer::getVersion)
+                                                      .containsExactly("Alexander", 32, 1L);
+        assertThat(underTest.pendingCount()).isZero();
+    }
+
+    @Test
+    void flushesOnlyRequestedCustomers() {
+        customerDao.insertCustomers(List.of(new Customer("Alex", "alex@test.com", 30), new Customer("Bea", "bea@test.com", 40)));
+        underTest.submit(new CustomerUpdate(1L, null, null, 31));
+        underTest.submit(new CustomerUpdate(2L, null, null, 41));
+
+        underTest.flush(List.of(1L, 3L));
+
+        assertThat(customerDao.selectCustomersByIds(List.of(1L, 2L))).extracting(Customer::getAge).containsExactly(31, 40);
+        assertThat(underTest.pendingCount()).isEqualTo(1);
+    }
+
+    @Test
+    void overlaysPendingUpdate() {
+        Customer stored = new Customer(1L, "Alex", "alex@test.com", 30, 4L);
+
+        underTest.submit(new CustomerUpdate(1L, null, null, 31));
+
+        assertThat(underTest.overlay(stored)).extracting(Customer::getName, Customer::getAge, Customer::getVersion)
+                                             .containsExactly("Alex", 31, 4L);
+        assertThat(underTest.overlay(new Customer(2L, "Bea", "bea@test.com", 40))).extracting(Customer::getAge).isEqualTo(40);
+    }
+
+    @Test
+    void willThrowWhenQueueIsFull() {
+        ReflectionTestUtils.setField(underTest, "capacity", 1);
+        ReflectionTestUtils.setField(underTest, "offerTimeout", Duration.ofMillis(10));
+        underTest.submit(new CustomerUpdate(1L, "Alex", null, null));
+
+        assertThatThrownBy(() -> underTest.submit(new CustomerUpdate(2L, "Bea", null, null)))
+                .isInstanceOf(ServiceUnavailableException.class);
+
+        underTest.submit(new CustomerUpdate(1L, null, null, 31));
+        assertThat(underTest.pendingCount()).isEqualTo(1);
+    }
+
+    @Test
+    void keepsBatchPendingWhenDatabaseIsUnavailable() {
+        CustomerDao failingDao = mock(CustomerDao.class);
+        when(failingDao.updateCustomers(anyList())).thenThrow(new QueryTimeoutException("timeout"));
+        CustomerWriteBehind writeBehind = new CustomerWriteBehind(failingDao, new ConcurrentMapCacheManager(), new SimpleMeterRegistry());
+        writeBehind.submit(new CustomerUpdate(1L, "Alex", null, null));
+
+        assertThatThrownBy(writeBehind::flush).isInstanceOf(QueryTimeoutException.class);
+        assertThat(writeBehind.pendingCount()).isEqualTo(1);
+    }
+
+    @Test
+    void deadLettersOnlyRejectedUpdates() {
+        CustomerDao rejectingDao = mock(CustomerDao.class);
+        CustomerUpdate valid = new CustomerUpdate(1L, "Alex", null, null);
+        CustomerUpdate tooLong = new CustomerUpdate(2L, "A name far longer than the column allows", null, null);
+        when(rejectingDao.updateCustomers(anyList())).thenThrow(new DataIntegrityViolationException("value too long"));
+        when(rejectingDao.updateCustomer(tooLong)).thenThrow(new DataIntegrityViolationException("value too long"));
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        CustomerWriteBehind writeBehind = new CustomerWriteBehind(rejectingDao, new ConcurrentMapCacheManager(), meterRegistry);
+        writeBehind.submit(valid);
+        writeBehind.submit(tooLong);
+
+        writeBehind.flush();
+
+        verify(rejectingDao).updateCustomer(valid);
+        assertThat(writeBehind.pendingCount()).isZero();
+        assertThat(writeBehind.deadLetters()).containsExactly(tooLong);
+        assertThat(meterRegistry.get("customer.updates.rejected").gauge().value()).isEqualTo(1);
+    }
+}
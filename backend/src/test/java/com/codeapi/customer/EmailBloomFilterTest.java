@@ -0,0 +1,56 @@
+package com.codeapi.customer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class EmailBloomFilterTest {
+
+    private final CustomerDao customerDao = mock(CustomerDao.class);
+    private final EmailBloomFilter underTest = new EmailBloomFilter(customerDao);
+
+    @Test
+    void mightContainEverythingUntilBuilt() {
+        assertThat(underTest.isReady()).isFalse();
+        assertThat(underTest.mightContain("anyone@test.com")).isTrue();
+    }
+
+    @Test
+    void rebuildLoadsExistingEmails() {
+        doAnswer(invocation -> {
+            Consumer<Customer> consumer = invocation.getArgument(0);
+            IntStream.range(0, 1000).forEach(i -> consumer.accept(new Customer((long) i, "Test", "user" + i + "@test.com", 20)));
+            return null;
+        }).when(customerDao).streamAllCustomers(any());
+
+        underTest.rebuild();
+
+        assertThat(underTest.isReady()).isTrue();
+        assertThat(IntStream.range(0, 1000)).allMatch(i -> underTest.mightContain("user" + i + "@test.com"));
+        assertThat(underTest.mightContain("missing@test.com")).isFalse();
+    }
+
+    @Test
+    void putMakesEmailVisible() {
+        underTest.rebuild();
+
+        underTest.put("new@test.com");
+
+        assertThat(underTest.mightContain("new@test.com")).isTrue();
+    }
+
+    @Test
+    void staysUnbuiltWhenScanFails() {
+        doThrow(new IllegalStateException("database down")).when(customerDao).streamAllCustomers(any());
+
+        underTest.rebuild();
+
+        assertThat(underTest.isReady()).isFalse();
+        assertThat(underTest.mightContain("anyone@test.com")).isTrue();
+    }
+}
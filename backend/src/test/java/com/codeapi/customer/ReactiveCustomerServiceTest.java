@@ -0,0 +1,150 @@
+package com.codeapi.customer;
+
+import com.codeapi.exception.DuplicateResourceException;
+import com.codeapi.exception.NotModifiedException;
+import com.codeapi.exception.PreconditionFailedException;
+import com.codeapi.exception.RequestValidationException;
+import com.codeapi.exception.ResourceNotFoundException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReactiveCustomerServiceTest {
+
+    @Mock
+    private ReactiveCustomerDao customerDao;
+    private ReactiveCustomerService underTest;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new ReactiveCustomerService(customerDao);
+    }
+
+
+    @Test
+    void getCustomers() {
+        CustomerPage page = new CustomerPage(List.of(new Customer(1L, "Test", "test@test.com", 19)), "1");
+        when(customerDao.selectCustomersPage(null, 50)).thenReturn(Mono.just(page));
+
+        assertThat(underTest.getCustomers(null, null).block()).isEqualTo(page);
+    }
+
+    @Test
+    void willErrorWhenPageLimitIsOutOfRange() {
+        assertThatThrownBy(() -> underTest.getCustomers(null, 501).block())
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("Limit must be between 1 and 500");
+        verifyNoInteractions(customerDao);
+    }
+
+    @Test
+    void exportCustomers() {
+        List<Customer> customers = List.of(
+                new Customer(1L, "One", "one@test.com", 19),
+                new Customer(2L, "Two", "two@test.com", 20));
+        when(customerDao.streamAllCustomers()).thenReturn(Flux.fromIterable(customers));
+
+        assertThat(underTest.exportCustomers().collectList().block()).isEqualTo(customers);
+    }
+
+    @Test
+    void selectCustomerById() {
+        Customer customer = new Customer(1L, "Test", "test@test.com", 19);
+        when(customerDao.selectCustomerById(1L)).thenReturn(Mono.just(customer));
+
+        assertThat(underTest.selectCustomerById(1L).block()).isEqualTo(customer);
+    }
+
+    @Test
+    void willErrorWhenCustomerNotFound() {
+        when(customerDao.selectCustomerById(1L)).thenReturn(Mono.empty());
+
+        assertThatThrownBy(() -> underTest.selectCustomerById(1L).block())
+                .isInstanceOf(ResourceNotFoundException.class)
+                .hasMessage("Customer with id [1] not found");
+    }
+
+    @Test
+    void insertCustomer() {
+        when(customerDao.existPersonWithEmail("test@test.com")).thenReturn(Mono.just(false));
+        when(customerDao.insertCustomer(any())).thenReturn(Mono.empty());
+
+        underTest.insertCustomer(new CustomerDto("Test", "Test@test.com", 19)).block();
+
+        verify(customerDao).insertCustomer(new Customer("Test", "test@test.com", 19));
+    }
+
+    @Test
+    void willErrorWhenNewCustomerIsIncompleteOrTooLong() {
+        assertThatThrownBy(() -> underTest.insertCustomer(new CustomerDto("Test", null, 19)).block())
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("Name, email and age are required");
+        assertThatThrownBy(() -> underTest.updateCustomer(1L, new CustomerDto("N".repeat(26), null, null), null).block())
+                .isInstanceOf(RequestValidationException.class);
+
+        verifyNoInteractions(customerDao);
+    }
+
+    @Test
+    void willErrorWhenInsertRacesWithAnotherRegistration() {
+        when(customerDao.existPersonWithEmail("test@test.com")).thenReturn(Mono.just(false));
+        when(customerDao.insertCustomer(any())).thenReturn(Mono.error(new DuplicateKeyException("duplicate")));
+
+        assertThatThrownBy(() -> underTest.insertCustomer(new CustomerDto("Test", "test@test.com", 19)).block())
+                .isInstanceOf(DuplicateResourceException.class)
+                .hasMessage("Email test@test.com is already exist");
+    }
+
+    @Test
+    void willErrorWhenDeletingMissingCustomer() {
+        when(customerDao.deleteCustomer(1L)).thenReturn(Mono.just(false));
+
+        assertThatThrownBy(() -> underTest.deleteCustomer(1L).block())
+                .isInstanceOf(ResourceNotFoundException.class);
+    }
+
+    @Test
+    void willErrorWhenUpdateChangesNothing() {
+        when(customerDao.updateCustomer(any(CustomerUpdate.class))).thenReturn(Mono.just(0L));
+        when(customerDao.existsCustomerById(1L)).thenReturn(Mono.just(true));
+
+        assertThatThrownBy(() -> underTest.updateCustomer(1L, new CustomerDto(null, null, 20), null).block())
+                .isInstanceOf(NotModifiedException.class)
+                .hasMessage("Nothing to update!");
+    }
+
+    @Test
+    void willErrorWhenUpdatingMissingCustomer() {
+        when(customerDao.updateCustomer(any(CustomerUpdate.class))).thenReturn(Mono.just(0L));
+        when(customerDao.existsCustomerById(1L)).thenReturn(Mono.just(false));
+
+        assertThatThrownBy(() -> underTest.updateCustomer(1L, new CustomerDto(null, null, 20), null).block())
+                .isInstanceOf(ResourceNotFoundException.class);
+    }
+
+    @Test
+    void updateChecksExpectedVersion() {
+        when(customerDao.updateCustomer(any(CustomerUpdate.class))).thenReturn(Mono.just(0L));
+        when(customerDao.selectCustomerById(1L)).thenReturn(Mono.just(new Customer(1L, "Test", "test@test.com", 19, 4L)));
+
+        assertThatThrownBy(() -> underTest.updateCustomer(1L, new CustomerDto(null, null, 20), 3L).block())
+                .isInstanceOf(PreconditionFailedException.class)
+                .hasMessage("Customer with id [1] has been modified");
+        assertThatThrownBy(() -> underTest.updateCustomer(1L, new CustomerDto(null, null, 19), 4L).block())
+                .isInstanceOf(NotModifiedException.class);
+        verify(customerDao).updateCustomer(new CustomerUpdate(1L, null, null, 20, 3L));
+        verify(customerDao, never()).existsCustomerById(any());
+    }
+
+}
@@ -2,6 +2,7 @@ package com.codeapi.journey;
 
 import com.codeapi.customer.Customer;
 import com.codeapi.customer.CustomerDto;
+import com.codeapi.customer.CustomerPage;
 import com.github.javafaker.Faker;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -13,7 +14,9 @@ import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import reactor.core.publisher.Mono;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 import java.util.Random;
 
 import static org.assertj.core.api.Assertions.*;
@@ -48,16 +51,7 @@ public class CustomerIT {
 
         Customer expected = new Customer(firstName + " " + lastName, email, age);
 
-        List<Customer> allCustomers = webTestClient
-                .get().uri(CUSTOMER_URI)
-                .accept(MediaType.APPLICATION_JSON)
-                .exchange()
-                .expectStatus()
-                .isOk()
-                .expectBodyList(new ParameterizedTypeReference<Customer>() {
-                })
-                .returnResult()
-                .getResponseBody();
+        List<Customer> allCustomers = getAllCustomers();
 
         assertThat(allCustomers)
                 .usingRecursiveFieldByFieldElementComparatorIgnoringFields("id")
@@ -102,16 +96,7 @@ public class CustomerIT {
                      .isOk();
 
         // get all customers
-        List<Customer> allCustomers = webTestClient
-                .get().uri(CUSTOMER_URI)
-                .accept(MediaType.APPLICATION_JSON)
-                .exchange()
-                .expectStatus()
-                .isOk()
-                .expectBodyList(new ParameterizedTypeReference<Customer>() {
-                })
-                .returnResult()
-                .getResponseBody();
+        List<Customer> allCustomers = getAllCustomers();
 
         // get customer id
         assert allCustomers != null;
@@ -156,16 +141,7 @@ public class CustomerIT {
                      .isOk();
 
         // get all customers
-        List<Customer> allCustomers = webTestClient
-                .get().uri(CUSTOMER_URI)
-                .accept(MediaType.APPLICATION_JSON)
-                .exchange()
-                .expectStatus()
-                .isOk()
-                .expectBodyList(new ParameterizedTypeReference<Customer>() {
-                })
-                .returnResult()
-                .getResponseBody();
+        List<Customer> allCustomers = getAllCustomers();
 
         // get customer id
         assert allCustomers != null;
@@ -203,4 +179,29 @@ public class CustomerIT {
         assertThat(uCustomer).isEqualTo(expectedCustomer);
     }
 
+    private List<Customer> getAllCustomers() {
+        List<Customer> customers = new ArrayList<>();
+        Optional<String> cursor = Optional.empty();
+        do {
+            Optional<String> after = cursor;
+            CustomerPage page = webTestClient
+                    .get().uri(uriBuilder -> uriBuilder.path(CUSTOMER_URI)
+                                                       .queryParamIfPresent("after", after)
+                                                       .queryParam("limit", 500)
+                                                       .build())
+                    .accept(MediaType.APPLICATION_JSON)
+                    .exchange()
+                    .expectStatus()
+                    .isOk()
+                    .expectBody(CustomerPage.class)
+                    .returnResult()
+                    .getResponseBody();
+
+            assert page != null;
+            customers.addAll(page.customers());
+            cursor = Optional.ofNullable(page.nextCursor());
+        } while (cursor.isPresent());
+        return customers;
+    }
+
 }
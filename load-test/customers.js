@@ -0,0 +1,50 @@
+// k6 load test for the customer API.
+//
+// Compare the two execution modes against the same database:
+//   java -jar springapi.jar                                          (platform threads)
+//   java -jar springapi.jar --spring.profiles.active=virtual-threads (virtual threads)
+// then run, for each:
+//   k6 run -e BASE_URL=http://localhost:8080 -e VUS=5000 load-test/customers.js
+// and compare http_reqs (throughput) and http_req_duration p(95)/p(99).
+import http from 'k6/http';
+import { check } from 'k6';
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8080';
+const VUS = parseInt(__ENV.VUS || '5000');
+const MAX_ID = parseInt(__ENV.MAX_ID || '1000');
+
+// each of these should stay an index range scan (see V3__Add_Customer_Filter_Indexes.sql)
+const FILTERS = [
+    'ageMin=30&ageMax=40',
+    'ageMin=30&ageMax=40&sort=-age',
+    'namePrefix=an',
+    'namePrefix=an&sort=name',
+    'emailDomain=gmail.com',
+    'sort=-email',
+];
+
+export const options = {
+    scenarios: {
+        readMostly: {
+            executor: 'constant-vus',
+            vus: VUS,
+            duration: __ENV.DURATION || '2m',
+        },
+    },
+    summaryTrendStats: ['avg', 'p(50)', 'p(95)', 'p(99)', 'max'],
+};
+
+export default function () {
+    if (Math.random() < 0.9) {
+        const id = 1 + Math.floor(Math.random() * MAX_ID);
+        const res = http.get(`${BASE_URL}/api/v1/customers/${id}`, { tags: { name: 'GET /customers/{id}' } });
+        check(res, { 'found or missing': (r) => r.status === 200 || r.status === 404 });
+    } else if (Math.random() < 0.5) {
+        const res = http.get(`${BASE_URL}/api/v1/customers?limit=50`, { tags: { name: 'GET /customers' } });
+        check(res, { 'page served': (r) => r.status === 200 });
+    } else {
+        const query = FILTERS[Math.floor(Math.random() * FILTERS.length)];
+        const res = http.get(`${BASE_URL}/api/v1/customers?limit=50&${query}`, { tags: { name: 'GET /customers?filter' } });
+        check(res, { 'filtered page served': (r) => r.status === 200 });
+    }
+}